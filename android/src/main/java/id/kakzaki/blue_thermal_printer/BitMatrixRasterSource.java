@@ -0,0 +1,43 @@
+package id.kakzaki.blue_thermal_printer;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Packs a zxing {@link BitMatrix} straight into raster rows, without rendering a Bitmap.
+ *
+ * BitArray keeps 32 modules per int, least significant bit first. Reversing a word
+ * puts them MSB first, so every word turns into four raster bytes.
+ */
+public class BitMatrixRasterSource implements RasterSource {
+    private final BitMatrix matrix;
+    private BitArray row;
+
+    public BitMatrixRasterSource(BitMatrix matrix) {
+        this.matrix = matrix;
+    }
+
+    @Override
+    public int getWidth() {
+        return matrix.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return matrix.getHeight();
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        int widthBytes = RasterEncoder.bytesPerRow(matrix.getWidth());
+        int out = dstOffset;
+        for (int y = startRow; y < startRow + rows; y++) {
+            row = matrix.getRow(y, row);
+            int[] words = row.getBitArray();
+            for (int i = 0; i < widthBytes; i++) {
+                int word = Integer.reverse(words[i >> 2]);
+                dst[out++] = (byte) (word >>> (24 - ((i & 3) << 3)));
+            }
+        }
+    }
+}
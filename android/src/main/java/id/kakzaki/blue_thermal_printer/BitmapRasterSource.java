@@ -0,0 +1,42 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.graphics.Bitmap;
+
+/**
+ * Packs an ARGB bitmap through a {@link Ditherer}, reusing one row buffer.
+ */
+public class BitmapRasterSource implements RasterSource {
+    private final Bitmap bitmap;
+    private final int[] rowBuffer;
+    private final Ditherer ditherer;
+
+    public BitmapRasterSource(Bitmap bitmap) {
+        this(bitmap, Ditherer.THRESHOLD);
+    }
+
+    public BitmapRasterSource(Bitmap bitmap, String dither) {
+        this.bitmap = bitmap;
+        this.rowBuffer = new int[bitmap.getWidth()];
+        this.ditherer = new Ditherer(dither, bitmap.getWidth());
+    }
+
+    @Override
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        int width = bitmap.getWidth();
+        ditherer.setRow(startRow);
+        for (int y = startRow; y < startRow + rows; y++) {
+            bitmap.getPixels(rowBuffer, 0, width, 0, y, width, 1);
+            dstOffset = ditherer.packRow(rowBuffer, dst, dstOffset);
+        }
+    }
+}
@@ -8,33 +8,41 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothSocket;
 import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.util.Log;
-import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Looper;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
@@ -51,8 +59,8 @@ import io.flutter.plugin.common.PluginRegistry.RequestPermissionsResultListener;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
-import com.journeyapps.barcodescanner.BarcodeEncoder;
 
 public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,MethodCallHandler, RequestPermissionsResultListener {
 
@@ -63,12 +71,8 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
   
   // WriteBytes configuration constants - optimized for reliability and power cycling
   private static final int MAX_RETRY_ATTEMPTS = 7; // Further increased for robust power cycle recovery
-  private static final int WRITE_DELAY_MS = 50; // Optimal for reliability after power cycle
-  private static final int CHUNK_SIZE = 512; // Smaller chunks for better reliability
   private static final int CONNECTION_TIMEOUT_MS = 10000; // Extended timeout for power cycle scenarios
-  private static final int FAST_WRITE_DELAY_MS = 30; // Balanced speed/reliability
-  private static final int CHUNK_DELAY_MS = 75; // Increased for thermal printer processing
-  private static final int PRINTER_INIT_DELAY_MS = 300; // Extended initialization delay
+  private static final int FAST_WRITE_DELAY_MS = 30; // Retry backoff step; writes themselves are paced by PacedOutputStream
   private static final int POWER_CYCLE_RECOVERY_DELAY_MS = 1000; // Longer delay for power cycle
   private static final int PRINTER_WAKE_DELAY_MS = 500; // Wake-up sequence delay
   private static final int STATUS_CHECK_DELAY_MS = 100; // Status verification delay
@@ -76,18 +80,53 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
   
   // Fast WriteBytes configuration constants - optimized for speed
   private static final int FAST_MAX_RETRY_ATTEMPTS = 2; // Fewer retries for speed
-  private static final int FAST_WRITE_DELAY_MS2 = 8; // Minimal delay for maximum speed
-  private static final int FAST_CHUNK_SIZE = 4096; // Larger chunks for better throughput
-  private static final int FAST_CHUNK_DELAY_MS = 15; // Minimal chunk delay
-  private static final int FAST_INIT_DELAY_MS = 30; // Quick initialization
+  private static final int FAST_WRITE_DELAY_MS2 = 8; // Fast retry backoff step
+
+  // Raster images are streamed in bands, each with its own GS v 0 header
+  private static final int DEFAULT_RASTER_BAND_ROWS = 64;
+  private static final int MAX_RASTER_BAND_ROWS = 1024;
+  private static final int NV_WRITE_DELAY_MS = 500; // NV memory writes keep the printer busy
+  private static final int DISCONNECT_DRAIN_TIMEOUT_MS = 30000; // queued jobs finish before a disconnect
+  private static final int RESUME_CONFIRM_BYTES = 8 * 1024; // resumable writes ask the printer how far it got this often
+  private static final int STATUS_REPLY_TIMEOUT_MS = 500; // time a printer has to answer DLE EOT
   
   private static ConnectedThread THREAD = null;
+  private static final MultiFormatWriter CODE_WRITER = new MultiFormatWriter();
+  private final ExecutorService rasterWriter = Executors.newSingleThreadExecutor();
+  // connect, disconnect and connection checks, in call order and off the platform thread
+  private final ExecutorService connectionExecutor = Executors.newSingleThreadExecutor();
+  private volatile int rasterBandRows = DEFAULT_RASTER_BAND_ROWS;
+  private volatile boolean rasterOptimization = true;
+  private volatile String rasterDither = Ditherer.THRESHOLD;
+  private volatile PrintJobMetrics lastJobMetrics;
+  private final RasterCache rasterCache = new RasterCache();
+  private final GlyphAtlas glyphAtlas = new GlyphAtlas();
+
+  private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+    @Override
+    public void onTrimMemory(int level) {
+      rasterCache.onTrimMemory(level);
+      glyphAtlas.onTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+      rasterCache.clear();
+      glyphAtlas.clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+  };
   private BluetoothAdapter mBluetoothAdapter;
 
   private Result pendingResult;
 
-  private EventSink readSink;
+  private volatile EventSink readSink;
   private EventSink statusSink;
+  // event sinks may only be called on the platform thread
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
   private FlutterPluginBinding pluginBinding;
   private ActivityPluginBinding activityBinding;
@@ -111,6 +150,8 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
   @Override
   public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
     pluginBinding = null;
+    rasterWriter.shutdown();
+    connectionExecutor.shutdown();
   }
 
   @Override
@@ -156,12 +197,14 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       mBluetoothManager = (BluetoothManager) application.getSystemService(Context.BLUETOOTH_SERVICE);
       mBluetoothAdapter = mBluetoothManager.getAdapter();
       activityBinding.addRequestPermissionsResultListener(this);
+      application.registerComponentCallbacks(memoryCallbacks);
     }
   }
 
 
   private void detach() {
     Log.i(TAG, "detach");
+    context.unregisterComponentCallbacks(memoryCallbacks);
     context = null;
     activityBinding.removeRequestPermissionsResultListener(this);
     activityBinding = null;
@@ -326,6 +369,19 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         }
         break;
 
+      case "queueBytes":
+        if (arguments.containsKey("message")) {
+          byte[] message = (byte[]) arguments.get("message");
+          queueBytes(result, message);
+        } else {
+          result.error("invalid_argument", "argument 'message' not found", null);
+        }
+        break;
+
+      case "getQueueStatus":
+        getQueueStatus(result);
+        break;
+
       case "writeBytesNoFeed":
         if (arguments.containsKey("message")) {
           byte[] message = (byte[]) arguments.get("message");
@@ -366,7 +422,9 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       case "printImage":
         if (arguments.containsKey("pathImage")) {
           String pathImage = (String) arguments.get("pathImage");
-          printImage(result, pathImage);
+          int rotation = arguments.containsKey("rotation") ? (int) arguments.get("rotation") : 0;
+          boolean mirror = arguments.containsKey("mirror") && (boolean) arguments.get("mirror");
+          printImage(result, pathImage, rotation, mirror);
         } else {
           result.error("invalid_argument", "argument 'pathImage' not found", null);
         }
@@ -375,12 +433,181 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         case "printImageBytes":
         if (arguments.containsKey("bytes")) {
           byte[] bytes = (byte[]) arguments.get("bytes");
-          printImageBytes(result, bytes);
+          int rotation = arguments.containsKey("rotation") ? (int) arguments.get("rotation") : 0;
+          boolean mirror = arguments.containsKey("mirror") && (boolean) arguments.get("mirror");
+          printImageBytes(result, bytes, rotation, mirror);
         } else {
           result.error("invalid_argument", "argument 'bytes' not found", null);
         }
         break;
 
+      case "printGrayscale":
+      case "printPackedRaster":
+        if (arguments.containsKey("pixels") && arguments.containsKey("width") && arguments.containsKey("height")) {
+          byte[] pixels = (byte[]) arguments.get("pixels");
+          int width = (int) arguments.get("width");
+          int height = (int) arguments.get("height");
+          int align = arguments.containsKey("align") ? (int) arguments.get("align") : 1;
+          printPixels(result, call.method, pixels, width, height, align);
+        } else {
+          result.error("invalid_argument", "arguments 'pixels', 'width' and 'height' are required", null);
+        }
+        break;
+
+      case "setRasterBandHeight":
+        if (arguments.containsKey("rows")) {
+          int rows = (int) arguments.get("rows");
+          setRasterBandHeight(result, rows);
+        } else {
+          result.error("invalid_argument", "argument 'rows' not found", null);
+        }
+        break;
+
+      case "setRasterOptimization":
+        if (arguments.containsKey("enabled")) {
+          boolean enabled = (boolean) arguments.get("enabled");
+          setRasterOptimization(result, enabled);
+        } else {
+          result.error("invalid_argument", "argument 'enabled' not found", null);
+        }
+        break;
+
+      case "setRasterDither":
+        if (arguments.containsKey("mode")) {
+          String mode = (String) arguments.get("mode");
+          setRasterDither(result, mode);
+        } else {
+          result.error("invalid_argument", "argument 'mode' not found", null);
+        }
+        break;
+
+      case "clearImageCache":
+        clearImageCache(result);
+        break;
+
+      case "getImageCacheStats":
+        result.success(rasterCache.stats());
+        break;
+
+      case "getLastJobMetrics":
+        result.success(lastJobMetrics != null ? lastJobMetrics.toMap() : null);
+        break;
+
+      case "registerLogo":
+        if (arguments.containsKey("key") && arguments.containsKey("bytes")) {
+          String key = (String) arguments.get("key");
+          byte[] bytes = (byte[]) arguments.get("bytes");
+          String storage = (String) arguments.get("storage");
+          registerLogo(result, key, bytes, storage != null ? storage : NvGraphics.STORAGE_NV);
+        } else {
+          result.error("invalid_argument", "argument 'key' or 'bytes' not found", null);
+        }
+        break;
+
+      case "printLogo":
+        if (arguments.containsKey("key")) {
+          String key = (String) arguments.get("key");
+          int align = arguments.containsKey("align") ? (int) arguments.get("align") : 1;
+          printLogo(result, key, align);
+        } else {
+          result.error("invalid_argument", "argument 'key' not found", null);
+        }
+        break;
+
+      case "forgetLogos":
+        if (THREAD != null) {
+          LogoRegistry.forget(THREAD.address);
+        }
+        result.success(true);
+        break;
+
+      case "setPrinterWidth":
+        if (arguments.containsKey("width")) {
+          int width = (int) arguments.get("width");
+          setPrinterWidth(result, width);
+        } else {
+          result.error("invalid_argument", "argument 'width' not found", null);
+        }
+        break;
+
+      case "setPrintSpeed":
+        if (arguments.containsKey("speed")) {
+          int speed = (int) arguments.get("speed");
+          int bufferBytes = arguments.get("bufferBytes") != null
+                  ? (int) arguments.get("bufferBytes") : PrinterProfile.DEFAULT_RECEIVE_BUFFER_BYTES;
+          setPrintSpeed(result, speed, bufferBytes);
+        } else {
+          result.error("invalid_argument", "argument 'speed' not found", null);
+        }
+        break;
+
+      case "printText":
+        if (arguments.containsKey("text")) {
+          String text = (String) arguments.get("text");
+          int size = arguments.containsKey("size") ? (int) arguments.get("size") : 24;
+          int align = arguments.containsKey("align") ? (int) arguments.get("align") : 0;
+          boolean bold = arguments.containsKey("bold") && (boolean) arguments.get("bold");
+          printText(result, text, size, align, bold);
+        } else {
+          result.error("invalid_argument", "argument 'text' not found", null);
+        }
+        break;
+
+      case "getGlyphCacheStats":
+        result.success(glyphAtlas.stats());
+        break;
+
+      case "printCanvas":
+        if (arguments.containsKey("elements")) {
+          List<Map<String, Object>> elements = (List<Map<String, Object>>) arguments.get("elements");
+          int height = arguments.containsKey("height") ? (int) arguments.get("height") : 0;
+          printCanvas(result, elements, height);
+        } else {
+          result.error("invalid_argument", "argument 'elements' not found", null);
+        }
+        break;
+
+      case "setQrMode":
+        if (arguments.containsKey("mode")) {
+          String mode = (String) arguments.get("mode");
+          setQrMode(result, mode);
+        } else {
+          result.error("invalid_argument", "argument 'mode' not found", null);
+        }
+        break;
+
+      case "setResumeMode":
+        if (arguments.containsKey("mode")) {
+          String mode = (String) arguments.get("mode");
+          setResumeMode(result, mode);
+        } else {
+          result.error("invalid_argument", "argument 'mode' not found", null);
+        }
+        break;
+
+      case "setBarcodeMode":
+        if (arguments.containsKey("mode")) {
+          String mode = (String) arguments.get("mode");
+          setBarcodeMode(result, mode);
+        } else {
+          result.error("invalid_argument", "argument 'mode' not found", null);
+        }
+        break;
+
+      case "printBarcode":
+        if (arguments.containsKey("data")) {
+          String data = (String) arguments.get("data");
+          String type = (String) arguments.get("type");
+          int height = (int) arguments.get("height");
+          int width = (int) arguments.get("width");
+          int hriPosition = (int) arguments.get("hriPosition");
+          int align = (int) arguments.get("align");
+          printBarcode(result, data, type != null ? type : EscPosCodes.BARCODE_CODE128, height, width, hriPosition, align);
+        } else {
+          result.error("invalid_argument", "argument 'data' not found", null);
+        }
+        break;
+
       case "printQRcode":
         if (arguments.containsKey("textToQR")) {
           String textToQR = (String) arguments.get("textToQR");
@@ -567,7 +794,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
    */
   private void isDeviceConnected(Result result, String address) {
 
-    AsyncTask.execute(() -> {
+    connectionExecutor.execute(() -> {
       try {
         BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(address);
 
@@ -606,7 +833,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       result.error("connect_error", "already connected", null);
       return;
     }
-    AsyncTask.execute(() -> {
+    connectionExecutor.execute(() -> {
       try {
         BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(address);
 
@@ -629,6 +856,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           socket.connect();
           THREAD = new ConnectedThread(socket);
           THREAD.start();
+          LogoRegistry.onConnected(address);
           result.success(true);
         } catch (Exception ex) {
           Log.e(TAG, ex.getMessage(), ex);
@@ -650,12 +878,19 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       result.error("disconnection_error", "not connected", null);
       return;
     }
-    AsyncTask.execute(() -> {
+    final ConnectedThread thread = THREAD;
+    // jobs already queued still print, new ones are refused
+    thread.queue.shutdown();
+    connectionExecutor.execute(() -> {
       try {
+        if (!thread.queue.awaitTermination(DISCONNECT_DRAIN_TIMEOUT_MS)) {
+          Log.w(TAG, "Print queue did not drain in time, cancelling the remaining jobs");
+        }
+
         // Clear buffer before disconnecting to prevent white paper on next power-on
         clearBufferBeforeDisconnect();
 
-        THREAD.cancel();
+        thread.cancel();
         THREAD = null;
         result.success(true);
       } catch (Exception ex) {
@@ -675,13 +910,15 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    try {
-      THREAD.write(message.getBytes());
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
-    }
+    enqueue(result, "write", () -> {
+      try {
+        THREAD.write(message.getBytes());
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
   }
     private void  defaultWriteBytes(Result result, byte[] message) {
     if (THREAD == null) {
@@ -689,13 +926,82 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
+    enqueue(result, "defaultWriteBytes", () -> {
+      try {
+        THREAD.write(message);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  /**
+   * Runs {@code job} on the connection's print queue, after the jobs already waiting.
+   * The job answers {@code result} itself; a full or closed queue and a disconnect before
+   * the job started are answered here.
+   */
+  private void enqueue(Result result, String name, PrintQueue.Job job) {
+    final ConnectedThread thread = THREAD;
+    if (thread == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
     try {
-      THREAD.write(message);
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      thread.queue.submit(name, new PrintQueue.Job() {
+        @Override
+        public void run() throws Exception {
+          try {
+            job.run();
+          } finally {
+            thread.flushOutput();
+          }
+        }
+
+        @Override
+        public void cancelled() {
+          result.error("job_cancelled", name + " was cancelled by a disconnect", null);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      result.error(thread.queue.isClosed() ? "queue_closed" : "queue_full", ex.getMessage(), null);
+    }
+  }
+
+  /**
+   * queueBytes() - Queue raw bytes for printing and return the job id without waiting
+   * Note: Jobs run in order; see getQueueStatus() for progress and backpressure
+   */
+  private void queueBytes(Result result, byte[] message) {
+    final ConnectedThread thread = THREAD;
+    if (thread == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    if (message == null || message.length == 0) {
+      result.error("write_error", "message is null or empty", null);
+      return;
+    }
+    try {
+      result.success(thread.queue.submit("queueBytes", () -> {
+        thread.write(message);
+        thread.flushOutput();
+      }));
+    } catch (RejectedExecutionException ex) {
+      result.error(thread.queue.isClosed() ? "queue_closed" : "queue_full", ex.getMessage(), null);
+    }
+  }
+
+  private void getQueueStatus(Result result) {
+    final ConnectedThread thread = THREAD;
+    if (thread == null) {
+      result.error("queue_error", "not connected", null);
+      return;
     }
+    Map<String, Object> status = thread.queue.status();
+    status.put("chunkSize", thread.chunks != null ? thread.chunks.size() : null);
+    result.success(status);
   }
 
   private void writeBytes(Result result, byte[] message) {
@@ -709,9 +1015,11 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "writeBytes", () -> {
       boolean success = false;
       String errorMessage = "";
+      // a retry goes on from what the printer already took
+      ResumableWrite job = THREAD.resumable(message, 0, message.length);
       
       for (int attempt = 1; attempt <= FAST_MAX_RETRY_ATTEMPTS; attempt++) {
         try {
@@ -722,13 +1030,13 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
             throw new IOException("Connection is not healthy");
           }
           
-          // Minimal printer initialization for speed
-          if (!initializePrinterFast()) {
+          // Minimal printer initialization for speed; ESC @ would drop what the printer holds of a resumed job
+          if (job.resumeOffset() == job.start && !initializePrinterFast()) {
             throw new IOException("Fast printer initialization failed");
           }
           
           // Write data in large chunks for maximum speed
-           success = writeDataInChunksFast(message);
+           success = THREAD.send(job, THREAD.directPolicy);
          
           Log.d(TAG, "Data written in FastWriteBytes attempt " + attempt);
           
@@ -771,9 +1079,11 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "writeBytesNoFeed", () -> {
       boolean success = false;
       String errorMessage = "";
+      // a retry goes on from what the printer already took
+      ResumableWrite job = THREAD.resumable(message, 0, message.length);
 
       for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
         try {
@@ -785,7 +1095,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           }
 
           // Write data directly without any initialization or extra commands
-          success = writeDataInChunks(message);
+          success = THREAD.send(job, THREAD.directPolicy);
 
           if (success) {
             Log.d(TAG, "WriteBytesNoFeed successful on attempt " + attempt);
@@ -826,7 +1136,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "writeBytesGP1324D", () -> {
       try {
         Log.d(TAG, "GP1324D WriteBytes starting, data length: " + message.length);
 
@@ -843,7 +1153,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         }
 
         // Write data with GP1324D optimized timing
-        if (!writeDataGP1324D(message)) {
+        if (!THREAD.send(message, 0, message.length, THREAD.directPolicy)) {
           result.error("write_error", "GP1324D data write failed", null);
           return;
         }
@@ -875,7 +1185,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "writeBytesGP1324DNoSpacing", () -> {
       try {
         Log.d(TAG, "GP1324D NoSpacing WriteBytes starting, data length: " + message.length);
 
@@ -886,7 +1196,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         }
 
         // Write data directly without initialization and finalization to avoid blank spaces
-        if (!writeDataGP1324D(message)) {
+        if (!THREAD.send(message, 0, message.length, THREAD.directPolicy)) {
           result.error("write_error", "GP1324D data write failed", null);
           return;
         }
@@ -901,117 +1211,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
     });
   }
 
-  private boolean writeDataInChunks(byte[] data) {
-    try {
-      int totalBytes = data.length;
-      int bytesWritten = 0;
-      
-      // For small data, use fast write without chunking
-      if (totalBytes <= CHUNK_SIZE) {
-        return THREAD.writeWithValidationFast(data);
-      }
-      
-      while (bytesWritten < totalBytes) {
-        int chunkSize = Math.min(CHUNK_SIZE, totalBytes - bytesWritten);
-        byte[] chunk = new byte[chunkSize];
-        System.arraycopy(data, bytesWritten, chunk, 0, chunkSize);
-        
-        if (!THREAD.writeWithValidationFast(chunk)) {
-          Log.e(TAG, "Failed to write chunk at offset " + bytesWritten);
-          return false;
-        }
-        
-        bytesWritten += chunkSize;
-        
-        // Adaptive delay based on remaining data
-        int remainingBytes = totalBytes - bytesWritten;
-        if (remainingBytes > CHUNK_SIZE * 2) {
-          Thread.sleep(CHUNK_DELAY_MS); // 50ms for large remaining data
-        } else if (remainingBytes > 0) {
-          Thread.sleep(FAST_WRITE_DELAY_MS); // 25ms for small remaining data
-        }
-        
-        // Log progress less frequently for better performance
-        if (bytesWritten % (CHUNK_SIZE * 4) == 0 || bytesWritten == totalBytes) {
-          Log.d(TAG, "Written " + bytesWritten + "/" + totalBytes + " bytes");
-        }
-      }
-      
-      return true;
-    } catch (Exception e) {
-      Log.e(TAG, "Error writing data in chunks: " + e.getMessage(), e);
-      return false;
-    }
-  }
-  
-  private boolean writeDataInChunksWithRecovery(byte[] data) {
-    try {
-      int totalBytes = data.length;
-      int bytesWritten = 0;
-      int consecutiveFailures = 0;
-      final int maxConsecutiveFailures = 3;
-      
-      Log.d(TAG, "Starting enhanced chunked write for " + totalBytes + " bytes");
-      
-      // For small data, use enhanced validation write
-      if (totalBytes <= CHUNK_SIZE) {
-        return THREAD.writeWithValidationEnhanced(data);
-      }
-      
-      while (bytesWritten < totalBytes) {
-        int chunkSize = Math.min(CHUNK_SIZE, totalBytes - bytesWritten);
-        byte[] chunk = new byte[chunkSize];
-        System.arraycopy(data, bytesWritten, chunk, 0, chunkSize);
-        
-        // Try to write chunk with enhanced validation
-        boolean chunkSuccess = THREAD.writeWithValidationEnhanced(chunk);
-        
-        if (chunkSuccess) {
-          bytesWritten += chunkSize;
-          consecutiveFailures = 0; // Reset failure counter on success
-          
-          // Adaptive delay based on remaining data and printer response
-          int remainingBytes = totalBytes - bytesWritten;
-          if (remainingBytes > CHUNK_SIZE * 2) {
-            Thread.sleep(CHUNK_DELAY_MS); // 50ms for large remaining data
-          } else if (remainingBytes > 0) {
-            Thread.sleep(FAST_WRITE_DELAY_MS); // 25ms for small remaining data
-          }
-          
-          // Log progress
-          if (bytesWritten % (CHUNK_SIZE * 2) == 0 || bytesWritten == totalBytes) {
-            Log.d(TAG, "Enhanced write progress: " + bytesWritten + "/" + totalBytes + " bytes");
-          }
-          
-        } else {
-          consecutiveFailures++;
-          Log.w(TAG, "Chunk write failed at offset " + bytesWritten + ", consecutive failures: " + consecutiveFailures);
-          
-          if (consecutiveFailures >= maxConsecutiveFailures) {
-            Log.e(TAG, "Too many consecutive chunk failures, aborting write operation");
-            return false;
-          }
-          
-          // Wait longer before retrying failed chunk
-          Thread.sleep(POWER_CYCLE_RECOVERY_DELAY_MS);
-          
-          // Verify connection is still healthy before retry
-          if (!isConnectionHealthyWithRecovery()) {
-            Log.e(TAG, "Connection lost during chunk write operation");
-            return false;
-          }
-        }
-      }
-      
-      Log.d(TAG, "Enhanced chunked write completed successfully");
-      return true;
-      
-    } catch (Exception e) {
-      Log.e(TAG, "Error in enhanced chunked write: " + e.getMessage(), e);
-      return false;
-    }
-  }
-  
   private boolean isConnectionHealthy() {
     try {
       return THREAD != null && 
@@ -1039,14 +1238,11 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       
       // Test the connection by sending a simple status request
       try {
-        // Send ESC @ (printer reset/initialize command) as a connection test
-        byte[] testCommand = {0x1B, 0x40}; // ESC @
-        synchronized (THREAD.outputStream) {
-          THREAD.outputStream.write(testCommand);
-          THREAD.outputStream.flush();
-        }
-        Thread.sleep(100); // Wait for printer to respond
+        THREAD.probe();
         return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
       } catch (Exception e) {
         Log.w(TAG, "Connection test failed: " + e.getMessage());
         return false;
@@ -1075,9 +1271,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
       
-      // Wait for printer to process initialization
-      Thread.sleep(PRINTER_INIT_DELAY_MS);
-      
       Log.d(TAG, "Printer initialization completed");
       return true;
       
@@ -1102,9 +1295,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
 
-      // Wait for final commands to process
-      Thread.sleep(100);
-
       Log.d(TAG, "Printer output finalization completed");
       return true;
 
@@ -1124,7 +1314,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "wakeUpPrinter", () -> {
       try {
         Log.d(TAG, "Waking up printer");
 
@@ -1155,8 +1345,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           THREAD.outputStream.flush();
         }
 
-        Thread.sleep(200);
-
         Log.d(TAG, "Printer wake-up completed");
         result.success(true);
 
@@ -1182,7 +1370,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "writeBytesWithWakeUp", () -> {
       try {
         Log.d(TAG, "WriteBytesWithWakeUp starting, data length: " + message.length);
 
@@ -1214,10 +1402,8 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           THREAD.outputStream.flush();
         }
 
-        Thread.sleep(100);
-
         // Step 3: Write actual data
-        if (!writeDataInChunksFast(message)) {
+        if (!THREAD.send(message, 0, message.length, THREAD.directPolicy)) {
           result.error("write_error", "Failed to write data", null);
           return;
         }
@@ -1378,7 +1564,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "writeBytesReliable", () -> {
       try {
         int totalBytes = message.length;
         Log.d(TAG, "WriteBytesReliable (fast) starting, bytes: " + totalBytes);
@@ -1390,7 +1576,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
             THREAD.outputStream.write(wakeUp);
             THREAD.outputStream.flush();
           }
-          Thread.sleep(100); // reduced from longer waits
         } catch (Exception e) {
           Log.w(TAG, "Wake attempt failed (non-fatal): " + e.getMessage());
         }
@@ -1402,12 +1587,13 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         }
 
         // STEP 3: Attempt enhanced chunked write (preferred)
-        boolean ok = writeDataInChunksWithRecovery(message);
+        ResumableWrite job = THREAD.resumable(message, 0, message.length);
+        boolean ok = THREAD.send(job, THREAD.recoveryPolicy);
 
-        // If enhanced write fails, fallback to standard chunked write (faster chunking)
+        // If enhanced write fails, fallback to standard chunked write, going on from where it stopped
         if (!ok) {
           Log.w(TAG, "Enhanced write failed, attempting standard chunked write");
-          ok = writeDataInChunks(message);
+          ok = THREAD.send(job, THREAD.directPolicy);
         }
 
         if (!ok) {
@@ -1416,10 +1602,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         }
 
         // STEP 4: Short finalize to ensure printer prints buffer
-        finalizePrinterOutput(); // short waits inside helper
-
-        // Small post-final delay (reduced)
-        Thread.sleep(120);
+        finalizePrinterOutput();
 
         Log.d(TAG, "WriteBytesReliable (fast) completed: " + totalBytes + " bytes");
         result.success(true);
@@ -1440,7 +1623,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "clearBuffer", () -> {
       try {
         Log.d(TAG, "Clearing printer buffer");
 
@@ -1457,9 +1640,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           THREAD.outputStream.flush();
         }
 
-        // Wait for printer to process clear commands
-        Thread.sleep(200);
-
         // Send another reset to ensure clean state
         byte[] resetSequence = {
           0x1B, 0x40,       // ESC @ - Initialize printer again
@@ -1472,8 +1652,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           THREAD.outputStream.flush();
         }
 
-        Thread.sleep(100);
-
         Log.d(TAG, "Printer buffer cleared successfully");
         result.success(true);
 
@@ -1494,7 +1672,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "clearAfterPrint", () -> {
       try {
         Log.d(TAG, "Clearing printer after print job");
 
@@ -1511,9 +1689,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
           THREAD.outputStream.flush();
         }
 
-        // Wait for printer to process
-        Thread.sleep(150);
-
         Log.d(TAG, "Post-print buffer clear completed");
         result.success(true);
 
@@ -1549,8 +1724,8 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
 
-      // Wait for commands to be processed
-      Thread.sleep(200);
+      // Let the printer work through what it still holds before the link goes
+      THREAD.pacer.awaitIdle(DISCONNECT_DRAIN_TIMEOUT_MS);
 
       Log.d(TAG, "Buffer cleared before disconnect");
       return true;
@@ -1599,9 +1774,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
 
-      // GP1324D needs longer initialization time
-      Thread.sleep(500);
-
       Log.d(TAG, "GP1324D: Printer initialization completed");
       return true;
 
@@ -1611,44 +1783,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
     }
   }
 
-  private boolean writeDataGP1324D(byte[] data) {
-    try {
-      int totalBytes = data.length;
-      int chunkSize = 512; // Larger chunks for maximum throughput
-      int bytesWritten = 0;
-
-      Log.d(TAG, "GP1324D: Writing " + totalBytes + " bytes in chunks of " + chunkSize);
-
-      while (bytesWritten < totalBytes) {
-        int currentChunkSize = Math.min(chunkSize, totalBytes - bytesWritten);
-        byte[] chunk = new byte[currentChunkSize];
-        System.arraycopy(data, bytesWritten, chunk, 0, currentChunkSize);
-
-        synchronized (THREAD.outputStream) {
-          THREAD.outputStream.write(chunk);
-          // Only flush every few chunks for better performance
-          if (bytesWritten + currentChunkSize >= totalBytes || (bytesWritten % (chunkSize * 4)) == 0) {
-            THREAD.outputStream.flush();
-          }
-        }
-
-        bytesWritten += currentChunkSize;
-
-        // Minimal delay only for larger chunks
-        if (currentChunkSize >= 512) {
-          Thread.sleep(2); // Reduced to 2ms for maximum speed
-        }
-
-        Log.d(TAG, "GP1324D: Written " + bytesWritten + "/" + totalBytes + " bytes");
-      }
-
-      return true;
-    } catch (Exception e) {
-      Log.e(TAG, "GP1324D data write failed: " + e.getMessage(), e);
-      return false;
-    }
-  }
-
   private boolean finalizePrinterGP1324D() {
     try {
       Log.d(TAG, "GP1324D: Finalizing printer output");
@@ -1665,9 +1799,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
 
-      // Wait for GP1324D to process final commands
-      Thread.sleep(200);
-
       Log.d(TAG, "GP1324D: Finalization completed");
       return true;
 
@@ -1688,7 +1819,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    AsyncTask.execute(() -> {
+    enqueue(result, "printReceiptGP1324D", () -> {
       try {
         Log.d(TAG, "GP1324D Receipt Print starting, content length: " + content.length());
 
@@ -1712,7 +1843,7 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         }
 
         // Write receipt data
-        if (!writeReceiptDataGP1324D(receiptData)) {
+        if (!THREAD.send(receiptData, 0, receiptData.length, THREAD.directPolicy)) {
           result.error("write_error", "GP1324D receipt data write failed", null);
           return;
         }
@@ -1752,9 +1883,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
 
-      // GP1324D needs time for mode switching
-      Thread.sleep(300);
-
       Log.d(TAG, "GP1324D: Receipt mode initialization completed");
       return true;
 
@@ -1834,39 +1962,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
     }
   }
 
-  private boolean writeReceiptDataGP1324D(byte[] data) {
-    try {
-      int totalBytes = data.length;
-      int chunkSize = 64; // Smaller chunks for GP1324D reliability
-      int bytesWritten = 0;
-
-      Log.d(TAG, "GP1324D Receipt: Writing " + totalBytes + " bytes in chunks of " + chunkSize);
-
-      while (bytesWritten < totalBytes) {
-        int currentChunkSize = Math.min(chunkSize, totalBytes - bytesWritten);
-        byte[] chunk = new byte[currentChunkSize];
-        System.arraycopy(data, bytesWritten, chunk, 0, currentChunkSize);
-
-        synchronized (THREAD.outputStream) {
-          THREAD.outputStream.write(chunk);
-          THREAD.outputStream.flush();
-        }
-
-        bytesWritten += currentChunkSize;
-
-        // GP1324D specific timing for receipts - shorter delays for text
-        Thread.sleep(50); // 50ms between chunks for receipt printing
-
-        Log.d(TAG, "GP1324D Receipt: Written " + bytesWritten + "/" + totalBytes + " bytes");
-      }
-
-      return true;
-    } catch (Exception e) {
-      Log.e(TAG, "GP1324D receipt data write failed: " + e.getMessage(), e);
-      return false;
-    }
-  }
-
   private boolean finalizeReceiptGP1324D() {
     try {
       Log.d(TAG, "GP1324D: Finalizing receipt output");
@@ -1884,9 +1979,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
 
-      // Wait for GP1324D to process final commands
-      Thread.sleep(150);
-
       Log.d(TAG, "GP1324D: Receipt finalization completed");
       return true;
 
@@ -1921,9 +2013,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         THREAD.outputStream.flush();
       }
       
-      // Minimal wait time
-      Thread.sleep(FAST_INIT_DELAY_MS);
-      
       return true;
       
     } catch (Exception e) {
@@ -1932,51 +2021,6 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
     }
   }
   
-  private boolean writeDataInChunksFast(byte[] data) {
-    Log.d(TAG," Fast chunked write starting");
-    try {
-      int totalBytes = data.length;
-      int bytesWritten = 0;
-      
-      Log.d(TAG, "Starting fast chunked write for " + totalBytes + " bytes");
-      
-      // For small data, write directly without chunking
-      if (totalBytes <= FAST_CHUNK_SIZE) {
-        return THREAD.writeWithValidationUltraFast(data);
-      }
-      
-      while (bytesWritten < totalBytes) {
-        int chunkSize = Math.min(FAST_CHUNK_SIZE, totalBytes - bytesWritten);
-        byte[] chunk = new byte[chunkSize];
-        System.arraycopy(data, bytesWritten, chunk, 0, chunkSize);
-        
-        if (!THREAD.writeWithValidationUltraFast(chunk)) {
-          Log.e(TAG, "Failed to write fast chunk at offset " + bytesWritten);
-          return false;
-        }
-        
-        bytesWritten += chunkSize;
-        
-        // Minimal delay between chunks
-        if (bytesWritten < totalBytes) {
-          Thread.sleep(FAST_CHUNK_DELAY_MS);
-        }
-        
-        // Log progress less frequently
-        if (bytesWritten % (FAST_CHUNK_SIZE * 2) == 0 || bytesWritten == totalBytes) {
-          Log.d(TAG, "Fast write progress: " + bytesWritten + "/" + totalBytes + " bytes");
-        }
-      }
-      
-      Log.d(TAG, "Fast chunked write completed successfully");
-      return true;
-      
-    } catch (Exception e) {
-      Log.e(TAG, "Error in fast chunked write: " + e.getMessage(), e);
-      return false;
-    }
-  }
-
   private void printCustom(Result result, String message, int size, int align, String charset) {
     // Print config "mode"
     byte[] cc = new byte[] { 0x1B, 0x21}; // 0- normal size text
@@ -1991,52 +2035,54 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       return;
     }
 
-    try {
-      switch (size) {
-        case 0:
-          THREAD.write(cc);
-          break;
-        case 1:
-          THREAD.write(bb);
-          break;
-        case 2:
-          THREAD.write(bb2);
-          break;
-        case 3:
-          THREAD.write(bb3);
-          break;
-        case 4:
-          THREAD.write(bb4);
-          break;
-        case 5:
-          THREAD.write(bb5);
-      }
-
-      switch (align) {
-        case 0:
-          // left align
-          THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
-          break;
-        case 1:
-          // center align
-          THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-          break;
-        case 2:
-          // right align
-          THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
-          break;
-      }
-      if(charset != null) {
-        THREAD.write(message.getBytes(charset));
-      } else {
-        THREAD.write(message.getBytes());
+    enqueue(result, "printCustom", () -> {
+      try {
+        switch (size) {
+          case 0:
+            THREAD.write(cc);
+            break;
+          case 1:
+            THREAD.write(bb);
+            break;
+          case 2:
+            THREAD.write(bb2);
+            break;
+          case 3:
+            THREAD.write(bb3);
+            break;
+          case 4:
+            THREAD.write(bb4);
+            break;
+          case 5:
+            THREAD.write(bb5);
+        }
+
+        switch (align) {
+          case 0:
+            // left align
+            THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+            break;
+          case 1:
+            // center align
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            break;
+          case 2:
+            // right align
+            THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
+            break;
+        }
+        if(charset != null) {
+          THREAD.write(message.getBytes(charset));
+        } else {
+          THREAD.write(message.getBytes());
+        }
+        THREAD.write(PrinterCommands.FEED_LINE);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
       }
-      THREAD.write(PrinterCommands.FEED_LINE);
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
-    }
+    });
   }
 
   private void printLeftRight(Result result, String msg1, String msg2, int size ,String charset,String format) {
@@ -2050,39 +2096,41 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      switch (size) {
-        case 0:
-          THREAD.write(cc);
-          break;
-        case 1:
-          THREAD.write(bb);
-          break;
-        case 2:
-          THREAD.write(bb2);
-          break;
-        case 3:
-          THREAD.write(bb3);
-          break;
-        case 4:
-          THREAD.write(bb4);
-          break;
-      }
-      THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-      String line = String.format("%-15s %15s %n", msg1, msg2);
-      if(format != null) {
-        line = String.format(format, msg1, msg2);
-      }
-      if(charset != null) {
-        THREAD.write(line.getBytes(charset));
-      } else {
-        THREAD.write(line.getBytes());
+    enqueue(result, "printLeftRight", () -> {
+      try {
+        switch (size) {
+          case 0:
+            THREAD.write(cc);
+            break;
+          case 1:
+            THREAD.write(bb);
+            break;
+          case 2:
+            THREAD.write(bb2);
+            break;
+          case 3:
+            THREAD.write(bb3);
+            break;
+          case 4:
+            THREAD.write(bb4);
+            break;
+        }
+        THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+        String line = String.format("%-15s %15s %n", msg1, msg2);
+        if(format != null) {
+          line = String.format(format, msg1, msg2);
+        }
+        if(charset != null) {
+          THREAD.write(line.getBytes(charset));
+        } else {
+          THREAD.write(line.getBytes());
+        }
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
       }
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
-    }
+    });
 
   }
 
@@ -2097,39 +2145,41 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      switch (size) {
-        case 0:
-          THREAD.write(cc);
-          break;
-        case 1:
-          THREAD.write(bb);
-          break;
-        case 2:
-          THREAD.write(bb2);
-          break;
-        case 3:
-          THREAD.write(bb3);
-          break;
-        case 4:
-          THREAD.write(bb4);
-          break;
-      }
-      THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-      String line = String.format("%-10s %10s %10s %n", msg1, msg2  , msg3);
-      if(format != null) {
-        line = String.format(format, msg1, msg2, msg3);
-      }
-      if(charset != null) {
-        THREAD.write(line.getBytes(charset));
-      } else {
-        THREAD.write(line.getBytes());
+    enqueue(result, "print3Column", () -> {
+      try {
+        switch (size) {
+          case 0:
+            THREAD.write(cc);
+            break;
+          case 1:
+            THREAD.write(bb);
+            break;
+          case 2:
+            THREAD.write(bb2);
+            break;
+          case 3:
+            THREAD.write(bb3);
+            break;
+          case 4:
+            THREAD.write(bb4);
+            break;
+        }
+        THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+        String line = String.format("%-10s %10s %10s %n", msg1, msg2  , msg3);
+        if(format != null) {
+          line = String.format(format, msg1, msg2, msg3);
+        }
+        if(charset != null) {
+          THREAD.write(line.getBytes(charset));
+        } else {
+          THREAD.write(line.getBytes());
+        }
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
       }
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
-    }
+    });
 
   }
 
@@ -2144,181 +2194,931 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      switch (size) {
-        case 0:
-          THREAD.write(cc);
-          break;
-        case 1:
-          THREAD.write(bb);
-          break;
-        case 2:
-          THREAD.write(bb2);
-          break;
-        case 3:
-          THREAD.write(bb3);
-          break;
-        case 4:
-          THREAD.write(bb4);
-          break;
+    enqueue(result, "print4Column", () -> {
+      try {
+        switch (size) {
+          case 0:
+            THREAD.write(cc);
+            break;
+          case 1:
+            THREAD.write(bb);
+            break;
+          case 2:
+            THREAD.write(bb2);
+            break;
+          case 3:
+            THREAD.write(bb3);
+            break;
+          case 4:
+            THREAD.write(bb4);
+            break;
+        }
+        THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+        String line = String.format("%-8s %7s %7s %7s %n", msg1, msg2,msg3,msg4);
+        if(format != null) {
+          line = String.format(format, msg1, msg2,msg3,msg4);
+        }
+        if(charset != null) {
+          THREAD.write(line.getBytes(charset));
+        } else {
+          THREAD.write(line.getBytes());
+        }
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+
+  }
+
+  private void printNewLine(Result result) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    enqueue(result, "printNewLine", () -> {
+      try {
+        THREAD.write(PrinterCommands.FEED_LINE);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void paperCut(Result result) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    enqueue(result, "paperCut", () -> {
+      try {
+        THREAD.write(PrinterCommands.FEED_PAPER_AND_CUT);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void drawerPin2(Result result) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    enqueue(result, "drawerPin2", () -> {
+      try {
+        THREAD.write(PrinterCommands.ESC_DRAWER_PIN2);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void drawerPin5(Result result) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    enqueue(result, "drawerPin5", () -> {
+      try {
+        THREAD.write(PrinterCommands.ESC_DRAWER_PIN5);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void printImage(Result result, String pathImage, int rotation, boolean mirror) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    if (!TransformedRasterSource.isValidRotation(rotation)) {
+      result.error("invalid_argument", "rotation must be 0, 90, 180 or 270", null);
+      return;
+    }
+    enqueue(result, "printImage", () -> {
+      try {
+        PrintJobMetrics metrics = new PrintJobMetrics("printImage");
+        File file = new File(pathImage);
+        String cacheKey = RasterCache.keyOf(pathImage, file.lastModified(), file.length(),
+                rasterCacheParams(THREAD, RasterOptimizer.ALIGN_CENTER)
+                        + ";r" + rotation + ";m" + (mirror ? 1 : 0));
+        byte[] cached = rasterCache.get(cacheKey);
+        int printerWidth = PrinterProfile.of(THREAD.address).printerWidth;
+        RasterSource source = cached == null
+                ? ScaledBitmapDecoder.openFile(pathImage, printerWidth, rasterDither, rotation) : null;
+        if (cached != null) {
+          THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+          writeCachedRaster(cached, metrics);
+          finishJob(metrics);
+        } else if (source != null) {
+          try {
+            if (rotation != 0 || mirror) {
+              source = new TransformedRasterSource(source, rotation, mirror);
+            }
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            writeRasterBanded(source, RasterOptimizer.ALIGN_CENTER, metrics, cacheKey);
+          } finally {
+            source.close();
+          }
+          finishJob(metrics);
+        } else {
+          Log.e("Print Photo error", "the file isn't exists");
+        }
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void printImageBytes(Result result, byte[] bytes, int rotation, boolean mirror) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    if (!TransformedRasterSource.isValidRotation(rotation)) {
+      result.error("invalid_argument", "rotation must be 0, 90, 180 or 270", null);
+      return;
+    }
+    enqueue(result, "printImageBytes", () -> {
+      try {
+        PrintJobMetrics metrics = new PrintJobMetrics("printImageBytes");
+        String cacheKey = RasterCache.keyOf(bytes, rasterCacheParams(THREAD, RasterOptimizer.ALIGN_CENTER)
+                + ";r" + rotation + ";m" + (mirror ? 1 : 0));
+        byte[] cached = rasterCache.get(cacheKey);
+        int printerWidth = PrinterProfile.of(THREAD.address).printerWidth;
+        RasterSource source = cached == null
+                ? ScaledBitmapDecoder.openByteArray(bytes, printerWidth, rasterDither, rotation) : null;
+        if (cached != null) {
+          THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+          writeCachedRaster(cached, metrics);
+          finishJob(metrics);
+        } else if (source != null) {
+          try {
+            if (rotation != 0 || mirror) {
+              source = new TransformedRasterSource(source, rotation, mirror);
+            }
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            writeRasterBanded(source, RasterOptimizer.ALIGN_CENTER, metrics, cacheKey);
+          } finally {
+            source.close();
+          }
+          finishJob(metrics);
+        } else {
+          Log.e("Print Photo error", "the file isn't exists");
+        }
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  /**
+   * printGrayscale() / printPackedRaster() - Print pixels Dart already has, without a PNG round trip
+   * printGrayscale takes one byte per pixel (0 black, 255 white) and dithers it like printImage;
+   * printPackedRaster takes 1bpp rows, MSB first, (width + 7) / 8 bytes each, 1 = black.
+   */
+  private void printPixels(Result result, String job, byte[] pixels, int width, int height, int align) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    int printerWidth = PrinterProfile.of(THREAD.address).printerWidth;
+    if (width < 1 || width > printerWidth || height < 1) {
+      result.error("invalid_argument", "width must be between 1 and " + printerWidth + ", height at least 1", null);
+      return;
+    }
+    RasterSource source;
+    try {
+      source = "printGrayscale".equals(job)
+              ? new GrayscaleRasterSource(pixels, width, height, rasterDither)
+              : new PackedRasterSource(pixels, width, height);
+    } catch (IllegalArgumentException ex) {
+      result.error("invalid_argument", ex.getMessage(), null);
+      return;
+    }
+
+    enqueue(result, "printPixels", () -> {
+      try {
+        PrintJobMetrics metrics = new PrintJobMetrics(job);
+        switch (align) {
+          case 0:
+            THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+            break;
+          case 2:
+            THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
+            break;
+          default:
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            break;
+        }
+        writeRasterBanded(source, align, metrics, null);
+        finishJob(metrics);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void setRasterBandHeight(Result result, int rows) {
+    if (rows < 1 || rows > MAX_RASTER_BAND_ROWS) {
+      result.error("invalid_argument", "rows must be between 1 and " + MAX_RASTER_BAND_ROWS, null);
+      return;
+    }
+    applySetting(result, "setRasterBandHeight", () -> rasterBandRows = rows);
+  }
+
+  private void setRasterOptimization(Result result, boolean enabled) {
+    applySetting(result, "setRasterOptimization", () -> rasterOptimization = enabled);
+  }
+
+  private void setRasterDither(Result result, String mode) {
+    if (!Ditherer.isValidMode(mode)) {
+      result.error("invalid_argument", "unknown dither mode '" + mode + "'", null);
+      return;
+    }
+    applySetting(result, "setRasterDither", () -> rasterDither = mode);
+  }
+
+  /**
+   * Changes a setting behind the jobs already queued, so they still print with the one
+   * they were submitted under. Without a connection there are no jobs and it applies at once.
+   */
+  private void applySetting(Result result, String name, Runnable change) {
+    if (THREAD == null) {
+      change.run();
+      result.success(true);
+      return;
+    }
+    enqueue(result, name, () -> {
+      change.run();
+      result.success(true);
+    });
+  }
+
+  private void clearImageCache(Result result) {
+    rasterCache.clear();
+    glyphAtlas.clear();
+    result.success(true);
+  }
+
+  /**
+   * Everything besides the image itself that changes the encoded bytes.
+   */
+  private String rasterCacheParams(ConnectedThread thread, int align) {
+    return "w" + PrinterProfile.of(thread.address).printerWidth
+            + ";b" + rasterBandRows
+            + ";o" + (rasterOptimization ? 1 : 0)
+            + ";d" + rasterDither
+            + ";a" + align;
+  }
+
+  /**
+   * Sends a cached raster like any other chunked write: in chunks that end between bands or rows.
+   */
+  private void writeCachedRaster(byte[] cached, PrintJobMetrics metrics) throws IOException {
+    metrics.setCacheHit(true);
+    long writeStart = System.nanoTime();
+    if (cached.length > 0 && !THREAD.send(cached, 0, cached.length, THREAD.directPolicy)) {
+      throw new IOException("cached raster write failed");
+    }
+    metrics.addWriteNanos(System.nanoTime() - writeStart);
+    metrics.addBytes(cached.length, cached.length);
+  }
+
+  private void finishJob(PrintJobMetrics metrics) {
+    metrics.finish();
+    lastJobMetrics = metrics;
+  }
+
+  /**
+   * Streams an image as a series of bands of {@link #rasterBandRows} rows.
+   * Each band is handed to {@link #rasterWriter} while the next one is encoded,
+   * so the printer starts working before the whole image is packed and only two
+   * band buffers are ever alive. Bands go out through {@link ConnectedThread#send},
+   * chunked and retried like a cached raster. When enabled, {@link RasterOptimizer}
+   * strips white space from every band first.
+   *
+   * @param align alignment the image is printed with, see {@link RasterOptimizer}
+   * @param cacheKey when set, the complete output is stored in {@link #rasterCache} under this key
+   */
+  private void writeRasterBanded(RasterSource source, int align, final PrintJobMetrics metrics, String cacheKey)
+          throws IOException, InterruptedException {
+    final ConnectedThread thread = THREAD;
+    if (thread == null) {
+      throw new IOException("not connected");
+    }
+
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int widthBytes = RasterEncoder.bytesPerRow(width);
+    int bandRows = Math.min(rasterBandRows, height);
+
+    byte[] packed = new byte[widthBytes * bandRows];
+    int capacity = RasterEncoder.RASTER_HEADER_SIZE + widthBytes * bandRows;
+    RasterBand[] bands = {new RasterBand(capacity), new RasterBand(capacity)};
+    RasterOptimizer optimizer = rasterOptimization ? new RasterOptimizer(widthBytes, align) : null;
+    ByteArrayOutputStream cacheCopy = cacheKey != null ? new ByteArrayOutputStream() : null;
+    Future<?> pending = null;
+
+    try {
+      for (int y = 0, band = 0; y < height; y += bandRows, band++) {
+        long encodeStart = System.nanoTime();
+        int rows = Math.min(bandRows, height - y);
+        final RasterBand out = bands[band & 1];
+        out.reset();
+
+        source.packRows(y, rows, packed, 0);
+        if (optimizer != null) {
+          optimizer.processBand(packed, rows, out);
+        } else {
+          out.raster(packed, 0, widthBytes, widthBytes, rows);
+        }
+        metrics.addEncodeNanos(System.nanoTime() - encodeStart);
+        metrics.addBytes(RasterEncoder.RASTER_HEADER_SIZE + widthBytes * rows, out.length);
+        if (cacheCopy != null) {
+          cacheCopy.write(out.data, 0, out.length);
+          if (cacheCopy.size() > rasterCache.maxEntryBytes()) {
+            cacheCopy = null;
+          }
+        }
+
+        // The other band is free again once the previous band has been written
+        awaitBand(pending);
+        if (out.length == 0) {
+          continue;
+        }
+        pending = rasterWriter.submit(() -> {
+          long writeStart = System.nanoTime();
+          if (!thread.send(out.data, 0, out.length, thread.directPolicy)) {
+            throw new IOException("raster band write failed");
+          }
+          metrics.addWriteNanos(System.nanoTime() - writeStart);
+          return null;
+        });
+      }
+      awaitBand(pending);
+      if (cacheCopy != null) {
+        rasterCache.put(cacheKey, cacheCopy.toByteArray());
+      }
+    } finally {
+      if (pending != null && !pending.isDone()) {
+        pending.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Commands for one raster band: GS v 0 segments plus
+   * the paper feeds asked for by {@link RasterOptimizer}. The buffer is reused
+   * from band to band and only grows.
+   */
+  private static final class RasterBand implements RasterOptimizer.Sink {
+    byte[] data;
+    int length;
+
+    RasterBand(int capacity) {
+      this.data = new byte[capacity];
+    }
+
+    void reset() {
+      length = 0;
+    }
+
+    @Override
+    public void raster(byte[] src, int offset, int stride, int rowBytes, int rows) {
+      ensureCapacity(RasterEncoder.RASTER_HEADER_SIZE + rowBytes * rows);
+      int out = length + RasterEncoder.writeHeader(data, length, rowBytes, rows);
+      for (int row = 0; row < rows; row++) {
+        System.arraycopy(src, offset + row * stride, data, out, rowBytes);
+        out += rowBytes;
+      }
+      length = out;
+    }
+
+    @Override
+    public void feed(int dots) {
+      ensureCapacity(3);
+      data[length++] = PrinterCommands.ESC;
+      data[length++] = 0x4A; // J
+      data[length++] = (byte) dots;
+    }
+
+    private void ensureCapacity(int extra) {
+      if (length + extra > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+      }
+    }
+  }
+
+  private static void awaitBand(Future<?> pending) throws IOException, InterruptedException {
+    if (pending == null) {
+      return;
+    }
+    try {
+      pending.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Raster band write failed", cause);
+    }
+  }
+
+  /**
+   * registerLogo() - Store a logo in the printer once, then print it with printLogo()
+   * Note: Uploads only when this printer does not hold the same image under the key yet
+   */
+  private void registerLogo(Result result, String key, byte[] bytes, String storage) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+
+    boolean legacy = NvGraphics.STORAGE_LEGACY.equals(storage);
+    if (!legacy && !NvGraphics.STORAGE_NV.equals(storage) && !NvGraphics.STORAGE_DOWNLOAD.equals(storage)) {
+      result.error("invalid_argument", "unknown storage '" + storage + "'", null);
+      return;
+    }
+    if (legacy ? key == null || key.isEmpty() : !NvGraphics.isValidKey(key)) {
+      result.error("invalid_argument", "key must be two printable ASCII characters", null);
+      return;
+    }
+
+    enqueue(result, "registerLogo", () -> {
+      try {
+        final ConnectedThread thread = THREAD;
+        if (thread == null) {
+          result.error("write_error", "not connected", null);
+          return;
+        }
+
+        String hash = RasterCache.hashOf(bytes);
+        if (LogoRegistry.isStored(thread.address, key, hash, storage)) {
+          Log.d(TAG, "Logo '" + key + "' already stored in " + thread.address);
+          result.success(false);
+          return;
+        }
+
+        Bitmap bmp = ScaledBitmapDecoder.decodeByteArray(bytes, PrinterProfile.of(thread.address).printerWidth);
+        if (bmp == null) {
+          result.error("invalid_argument", "bytes are not a decodable image", null);
+          return;
+        }
+        int width = bmp.getWidth();
+        int height = bmp.getHeight();
+        byte[] packed = new byte[RasterEncoder.bytesPerRow(width) * height];
+        RasterEncoder.packRows(bmp, 0, height, new int[width], packed, 0);
+
+        byte[] command;
+        if (legacy) {
+          LogoRegistry.put(thread.address, key, hash, storage, packed, width, height);
+          List<LogoRegistry.Logo> logos = LogoRegistry.legacyLogos(thread.address);
+          byte[][] images = new byte[logos.size()][];
+          int[] widths = new int[logos.size()];
+          int[] heights = new int[logos.size()];
+          for (int i = 0; i < logos.size(); i++) {
+            images[i] = logos.get(i).packed;
+            widths[i] = logos.get(i).width;
+            heights[i] = logos.get(i).height;
+          }
+          command = NvGraphics.defineLegacy(images, widths, heights);
+        } else {
+          command = NvGraphics.define(storage, key, packed, width, height);
+        }
+
+        try {
+          thread.write(command);
+        } catch (IOException e) {
+          if (legacy) {
+            // FS q clears every stored image first, the printer state is unknown now
+            LogoRegistry.forget(thread.address);
+          }
+          throw e;
+        }
+        if (!NvGraphics.STORAGE_DOWNLOAD.equals(storage)) {
+          // The printer is busy while it writes to NV memory
+          Thread.sleep(NV_WRITE_DELAY_MS);
+        }
+        LogoRegistry.put(thread.address, key, hash, storage, packed, width, height);
+
+        Log.d(TAG, "Logo '" + key + "' stored in " + thread.address + " (" + command.length + " bytes)");
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void printLogo(Result result, String key, int align) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    enqueue(result, "printLogo", () -> {
+      try {
+        LogoRegistry.Logo logo = LogoRegistry.find(THREAD.address, key);
+        if (logo == null) {
+          result.error("logo_not_registered", "no logo '" + key + "' stored in this printer", null);
+          return;
+        }
+
+        PrintJobMetrics metrics = new PrintJobMetrics("printLogo");
+        metrics.setMode(logo.storage);
+        byte[] command = NvGraphics.STORAGE_LEGACY.equals(logo.storage)
+                ? NvGraphics.printLegacy(LogoRegistry.legacyNumber(THREAD.address, key))
+                : NvGraphics.print(logo.storage, key);
+        switch (align) {
+          case 0:
+            THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+            break;
+          case 2:
+            THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
+            break;
+          default:
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            break;
+        }
+        THREAD.write(command);
+        metrics.addBytes(RasterEncoder.RASTER_HEADER_SIZE + RasterEncoder.bytesPerRow(logo.width) * logo.height,
+                command.length);
+        finishJob(metrics);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  /**
+   * printCanvas() - Compose a receipt from elements at dot positions and print it as one raster
+   * Element types: raster (packed 1bpp data), logo (registered key), image (encoded bytes),
+   * qr, barcode and rect; all take x and y. The canvas is as wide as the printer.
+   */
+  private void printCanvas(Result result, List<Map<String, Object>> elements, int height) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    enqueue(result, "printCanvas", () -> {
+      PrintJobMetrics metrics = new PrintJobMetrics("printCanvas");
+      PackedCanvas canvas = new PackedCanvas(PrinterProfile.of(THREAD.address).printerWidth);
+      long encodeStart = System.nanoTime();
+      try {
+        for (Map<String, Object> element : elements) {
+          drawCanvasElement(canvas, element);
+        }
+      } catch (RuntimeException | WriterException ex) {
+        // missing or mistyped element fields end up here too
+        result.error("invalid_argument", ex.getMessage(), exceptionToString(ex));
+        return;
+      }
+      canvas.extendTo(height);
+      metrics.addEncodeNanos(System.nanoTime() - encodeStart);
+      try {
+        THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+        writeRasterBanded(canvas, RasterOptimizer.ALIGN_LEFT, metrics, null);
+        finishJob(metrics);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  /**
+   * printText() - Print text the printer's code pages cannot show (Arabic, Thai, emoji...)
+   * Shaped by Android and sent as a raster; glyphs are cached so repeated characters cost a copy
+   */
+  private void printText(Result result, String text, int size, int align, boolean bold) {
+    if (THREAD == null) {
+      result.error("write_error", "not connected", null);
+      return;
+    }
+    if (size < 1 || size > 255) {
+      result.error("invalid_argument", "size must be between 1 and 255", null);
+      return;
+    }
+    enqueue(result, "printText", () -> {
+      try {
+        PrintJobMetrics metrics = new PrintJobMetrics("printText");
+        PackedCanvas canvas = new PackedCanvas(PrinterProfile.of(THREAD.address).printerWidth);
+        long encodeStart = System.nanoTime();
+        glyphAtlas.drawText(canvas, text, size, bold, align, 0);
+        metrics.addEncodeNanos(System.nanoTime() - encodeStart);
+        THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+        writeRasterBanded(canvas, RasterOptimizer.ALIGN_LEFT, metrics, null);
+        finishJob(metrics);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
+  }
+
+  private void drawCanvasElement(PackedCanvas canvas, Map<String, Object> element) throws WriterException {
+    String type = (String) element.get("type");
+    int x = element.containsKey("x") ? (int) element.get("x") : 0;
+    int y = element.containsKey("y") ? (int) element.get("y") : 0;
+    if (type == null) {
+      throw new IllegalArgumentException("canvas element without type");
+    }
+    switch (type) {
+      case "raster":
+        canvas.drawRaster((byte[]) element.get("data"), (int) element.get("width"), (int) element.get("height"), x, y);
+        break;
+      case "logo": {
+        String key = (String) element.get("key");
+        LogoRegistry.Logo logo = LogoRegistry.find(THREAD.address, key);
+        if (logo == null) {
+          throw new IllegalArgumentException("no logo '" + key + "' registered for this printer");
+        }
+        canvas.drawRaster(logo.packed, logo.width, logo.height, x, y);
+        break;
       }
-      THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-      String line = String.format("%-8s %7s %7s %7s %n", msg1, msg2,msg3,msg4);
-      if(format != null) {
-        line = String.format(format, msg1, msg2,msg3,msg4);
+      case "image": {
+        int width = element.containsKey("width") ? (int) element.get("width") : canvas.getWidth() - x;
+        RasterSource source = ScaledBitmapDecoder.openByteArray((byte[]) element.get("bytes"), width, rasterDither, 0);
+        if (source == null) {
+          throw new IllegalArgumentException("image bytes are not a decodable image");
+        }
+        try {
+          canvas.drawSource(source, x, y);
+        } finally {
+          source.close();
+        }
+        break;
       }
-      if(charset != null) {
-        THREAD.write(line.getBytes(charset));
-      } else {
-        THREAD.write(line.getBytes());
+      case "qr": {
+        int size = element.containsKey("size") ? (int) element.get("size") : 200;
+        canvas.drawSource(new BitMatrixRasterSource(
+                CODE_WRITER.encode((String) element.get("text"), BarcodeFormat.QR_CODE, size, size)), x, y);
+        break;
       }
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      case "barcode": {
+        String data = (String) element.get("data");
+        String barcodeType = element.containsKey("barcodeType")
+                ? (String) element.get("barcodeType") : EscPosCodes.BARCODE_CODE128;
+        int moduleWidth = element.containsKey("width") ? (int) element.get("width") : 2;
+        int height = element.containsKey("height") ? (int) element.get("height") : 80;
+        EscPosCodes.validateBarcode(barcodeType, data);
+        BarcodeFormat format = EscPosCodes.barcodeFormat(barcodeType);
+        int modules = CODE_WRITER.encode(data, format, 0, 1).getWidth();
+        canvas.drawSource(new BitMatrixRasterSource(
+                CODE_WRITER.encode(data, format, modules * Math.max(1, moduleWidth), Math.max(1, height))), x, y);
+        break;
+      }
+      case "rect":
+        canvas.fillRect(x, y, (int) element.get("width"), (int) element.get("height"));
+        break;
+      case "text": {
+        int size = element.containsKey("size") ? (int) element.get("size") : 24;
+        int align = element.containsKey("align") ? (int) element.get("align") : 0;
+        boolean bold = element.containsKey("bold") && (boolean) element.get("bold");
+        glyphAtlas.drawText(canvas, (String) element.get("text"), size, bold, align, y);
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("unknown canvas element '" + type + "'");
     }
-
   }
 
-  private void printNewLine(Result result) {
+  /**
+   * setPrinterWidth() - Tell the plugin how many dots the connected printer's head has
+   * Note: printImage, printImageBytes and registerLogo scale wider images down to this width
+   */
+  private void setPrinterWidth(Result result, int width) {
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      THREAD.write(PrinterCommands.FEED_LINE);
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+    if (width < 8 || width > PrinterProfile.MAX_PRINTER_WIDTH) {
+      result.error("invalid_argument", "width must be between 8 and " + PrinterProfile.MAX_PRINTER_WIDTH, null);
+      return;
     }
+    PrinterProfile profile = PrinterProfile.of(THREAD.address);
+    applySetting(result, "setPrinterWidth", () -> profile.printerWidth = width);
   }
 
-  private void paperCut(Result result) {
+  /**
+   * setPrintSpeed() - Tell the plugin how fast the connected printer feeds paper and how much it buffers
+   * Note: Writes are paced to this rate, so text streams at link speed and images never overrun the printer
+   */
+  private void setPrintSpeed(Result result, int speed, int bufferBytes) {
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      THREAD.write(PrinterCommands.FEED_PAPER_AND_CUT);
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+    if (speed < 1 || speed > PrinterProfile.MAX_PRINT_SPEED || bufferBytes < 64) {
+      result.error("invalid_argument", "speed must be between 1 and " + PrinterProfile.MAX_PRINT_SPEED
+              + " mm/s, bufferBytes at least 64", null);
+      return;
     }
+    PrinterProfile profile = PrinterProfile.of(THREAD.address);
+    applySetting(result, "setPrintSpeed", () -> {
+      profile.printSpeed = speed;
+      profile.receiveBufferBytes = bufferBytes;
+    });
   }
 
-  private void drawerPin2(Result result) {
+  /**
+   * setQrMode() - Choose how the connected printer gets QR codes
+   * Modes: "raster" (zxing image, works everywhere) or "native" (GS ( k, printer renders the code)
+   */
+  private void setQrMode(Result result, String mode) {
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      THREAD.write(PrinterCommands.ESC_DRAWER_PIN2);
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+    if (!PrinterProfile.isValidQrMode(mode)) {
+      result.error("invalid_argument", "unknown QR mode '" + mode + "'", null);
+      return;
     }
+    PrinterProfile profile = PrinterProfile.of(THREAD.address);
+    applySetting(result, "setQrMode", () -> profile.qrMode = mode);
   }
 
-  private void drawerPin5(Result result) {
+  /**
+   * setResumeMode() - Choose where a failed writeBytes is retried from on the connected printer
+   * Modes: "state" (default, from the last command the printer confirmed, after re-sending alignment and font),
+   * "offset" (from the last command confirmed, nothing re-sent) or "restart" (from the first byte)
+   * Note: a job is not kept across a disconnect; the call fails and the receipt has to be printed again
+   */
+  private void setResumeMode(Result result, String mode) {
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      THREAD.write(PrinterCommands.ESC_DRAWER_PIN5);
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+    if (!PrinterProfile.isValidResumeMode(mode)) {
+      result.error("invalid_argument", "unknown resume mode '" + mode + "'", null);
+      return;
     }
+    PrinterProfile profile = PrinterProfile.of(THREAD.address);
+    applySetting(result, "setResumeMode", () -> profile.resumeMode = mode);
   }
 
-  private void printImage(Result result, String pathImage) {
+  /**
+   * setBarcodeMode() - Choose how the connected printer gets 1D barcodes
+   * Modes: "native" (GS k, default) or "raster" (zxing image, for printers with broken GS k)
+   */
+  private void setBarcodeMode(Result result, String mode) {
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      Bitmap bmp = BitmapFactory.decodeFile(pathImage);
-      if (bmp != null) {
-        byte[] command = Utils.decodeBitmap(bmp);
-        THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-        THREAD.write(command);
-      } else {
-        Log.e("Print Photo error", "the file isn't exists");
-      }
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+    if (!PrinterProfile.isValidBarcodeMode(mode)) {
+      result.error("invalid_argument", "unknown barcode mode '" + mode + "'", null);
+      return;
     }
+    PrinterProfile profile = PrinterProfile.of(THREAD.address);
+    applySetting(result, "setBarcodeMode", () -> profile.barcodeMode = mode);
   }
 
-  private void printImageBytes(Result result, byte[] bytes) {
+  /**
+   * printBarcode() - Print a CODE128, EAN13, CODE39 or ITF barcode
+   * Native mode sends GS k with height, module width and HRI position; the raster
+   * fallback draws the bars with zxing (without HRI text).
+   */
+  private void printBarcode(Result result, String data, String type, int height, int width, int hriPosition, int align) {
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
     try {
-      Bitmap bmp = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-      if (bmp != null) {
-        byte[] command = Utils.decodeBitmap(bmp);
-        THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-        THREAD.write(command);
-      } else {
-        Log.e("Print Photo error", "the file isn't exists");
-      }
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      EscPosCodes.validateBarcode(type, data);
+    } catch (IllegalArgumentException ex) {
+      result.error("invalid_argument", ex.getMessage(), null);
+      return;
     }
+
+    enqueue(result, "printBarcode", () -> {
+      try {
+        switch (align) {
+          case 0:
+            THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+            break;
+          case 1:
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            break;
+          case 2:
+            THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
+            break;
+        }
+
+        PrintJobMetrics metrics = new PrintJobMetrics("printBarcode");
+        if (PrinterProfile.BARCODE_MODE_NATIVE.equals(PrinterProfile.of(THREAD.address).barcodeMode)) {
+          metrics.setMode("native");
+          byte[] command = EscPosCodes.barcode(type, data, height, width, hriPosition);
+          THREAD.write(command);
+          THREAD.write(PrinterCommands.FEED_LINE);
+          metrics.addBytes(command.length, command.length);
+        } else {
+          BarcodeFormat format = EscPosCodes.barcodeFormat(type);
+          // the narrowest rendering tells the module count, then scale to the module width
+          int modules = CODE_WRITER.encode(data, format, 0, 1).getWidth();
+          BitMatrix bitMatrix = CODE_WRITER.encode(data, format, modules * Math.max(1, width), Math.max(1, height));
+          writeRasterBanded(new BitMatrixRasterSource(bitMatrix), align, metrics, null);
+        }
+        finishJob(metrics);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
+      }
+    });
   }
 
   private void printQRcode(Result result, String textToQR, int width, int height, int align) {
-    MultiFormatWriter multiFormatWriter = new MultiFormatWriter();
     if (THREAD == null) {
       result.error("write_error", "not connected", null);
       return;
     }
-    try {
-      switch (align) {
-        case 0:
-          // left align
-          THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
-          break;
-        case 1:
-          // center align
-          THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
-          break;
-        case 2:
-          // right align
-          THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
-          break;
-      }
-      BitMatrix bitMatrix = multiFormatWriter.encode(textToQR, BarcodeFormat.QR_CODE, width, height);
-      BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
-      Bitmap bmp = barcodeEncoder.createBitmap(bitMatrix);
-      if (bmp != null) {
-        byte[] command = Utils.decodeBitmap(bmp);
-        THREAD.write(command);
-      } else {
-        Log.e("Print Photo error", "the file isn't exists");
+    enqueue(result, "printQRcode", () -> {
+      try {
+        switch (align) {
+          case 0:
+            // left align
+            THREAD.write(PrinterCommands.ESC_ALIGN_LEFT);
+            break;
+          case 1:
+            // center align
+            THREAD.write(PrinterCommands.ESC_ALIGN_CENTER);
+            break;
+          case 2:
+            // right align
+            THREAD.write(PrinterCommands.ESC_ALIGN_RIGHT);
+            break;
+        }
+        if (PrinterProfile.QR_MODE_NATIVE.equals(PrinterProfile.of(THREAD.address).qrMode)) {
+          // The printer renders the code itself from the payload
+          PrintJobMetrics metrics = new PrintJobMetrics("printQRcode");
+          metrics.setMode("native");
+          byte[] command = EscPosCodes.qrCode(textToQR, Math.min(width, height));
+          THREAD.write(command);
+          metrics.addBytes(RasterEncoder.RASTER_HEADER_SIZE + RasterEncoder.bytesPerRow(width) * height, command.length);
+          finishJob(metrics);
+          result.success(true);
+          return;
+        }
+        PrintJobMetrics metrics = new PrintJobMetrics("printQRcode");
+        String cacheKey = RasterCache.qrKeyOf(textToQR, width, height, rasterCacheParams(THREAD, align));
+        byte[] cached = rasterCache.get(cacheKey);
+        if (cached != null) {
+          writeCachedRaster(cached, metrics);
+        } else {
+          BitMatrix bitMatrix = CODE_WRITER.encode(textToQR, BarcodeFormat.QR_CODE, width, height);
+          writeRasterBanded(new BitMatrixRasterSource(bitMatrix), align, metrics, cacheKey);
+        }
+        finishJob(metrics);
+        result.success(true);
+      } catch (Exception ex) {
+        Log.e(TAG, ex.getMessage(), ex);
+        result.error("write_error", ex.getMessage(), exceptionToString(ex));
       }
-      result.success(true);
-    } catch (Exception ex) {
-      Log.e(TAG, ex.getMessage(), ex);
-      result.error("write_error", ex.getMessage(), exceptionToString(ex));
-    }
+    });
   }
 
   private class ConnectedThread extends Thread {
     public final BluetoothSocket mmSocket;
     private final InputStream inputStream;
     public final OutputStream outputStream;
+    // the head of outputStream, keeps writes to the rate the printer prints
+    final PacedOutputStream pacer;
+    // chunk size of the chunked writers, learned from this link
+    final ChunkSizeController chunks;
+    final String address;
+
+    private final Object responseLock = new Object();
+    private ByteArrayOutputStream pendingResponse;
+    // cleared when the printer left a DLE EOT unanswered, resumable writes then restart
+    private volatile boolean statusReplies = true;
+
+    // print jobs of this connection, run one at a time in submission order
+    final PrintQueue queue;
+
+    // how send() checks the link and retries chunks
+    final WritePolicy directPolicy;
+    final WritePolicy recoveryPolicy;
 
     ConnectedThread(BluetoothSocket socket) {
       mmSocket = socket;
@@ -2332,21 +3132,102 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
         e.printStackTrace();
       }
       inputStream = tmpIn;
-      outputStream = tmpOut;
+      address = socket.getRemoteDevice() != null ? socket.getRemoteDevice().getAddress() : "";
+      // everything written to the printer is paced and combined, so direct writes keep their order too
+      PrinterProfile profile = PrinterProfile.of(address);
+      WriteCombiner link = tmpOut != null ? new WriteCombiner(tmpOut, socket.getMaxTransmitPacketSize()) : null;
+      pacer = link != null ? new PacedOutputStream(link, profile) : null;
+      outputStream = pacer;
+      chunks = link != null ? new ChunkSizeController(link, profile) : null;
+      queue = new PrintQueue(address);
+
+      // one try per chunk, a failure ends the write
+      directPolicy = new WritePolicy("direct", () -> outputStream != null);
+      // up to three tries per chunk, each after the printer had time to recover
+      recoveryPolicy = new WritePolicy("recovery", () -> outputStream != null && socket.isConnected(), 3, () -> {
+        Thread.sleep(POWER_CYCLE_RECOVERY_DELAY_MS);
+        return isConnectionHealthyWithRecovery();
+      });
     }
 
     public void run() {
+      if (inputStream == null) {
+        return;
+      }
       byte[] buffer = new byte[1024];
       int bytes;
       while (true) {
         try {
           bytes = inputStream.read(buffer);
-          readSink.success(new String(buffer, 0, bytes));
-        } catch (NullPointerException e) {
-          break;
         } catch (IOException e) {
           break;
         }
+        if (bytes < 0) {
+          break;
+        }
+        // answers to request() are the plugin's, the app only sees what nobody asked for
+        if (bytes == 0 || captureResponse(buffer, bytes)) {
+          continue;
+        }
+        final EventSink sink = readSink;
+        if (sink != null) {
+          final String text = new String(buffer, 0, bytes);
+          mainHandler.post(() -> sink.success(text));
+        }
+      }
+    }
+
+    /**
+     * Hands {@code buffer} to the pending {@link #request}, if there is one.
+     * @return false when no request is waiting
+     */
+    private boolean captureResponse(byte[] buffer, int length) {
+      synchronized (responseLock) {
+        if (pendingResponse == null) {
+          return false;
+        }
+        pendingResponse.write(buffer, 0, length);
+        responseLock.notifyAll();
+        return true;
+      }
+    }
+
+    /**
+     * Sends a query command and collects whatever the printer answers within {@code timeoutMs}.
+     * @return the response bytes, empty if the printer stayed silent
+     */
+    byte[] request(byte[] command, long timeoutMs) throws IOException, InterruptedException {
+      synchronized (responseLock) {
+        pendingResponse = new ByteArrayOutputStream();
+      }
+      try {
+        write(command);
+        flushOutput();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (responseLock) {
+          long remaining;
+          while (pendingResponse.size() == 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            responseLock.wait(remaining);
+          }
+          return pendingResponse.toByteArray();
+        }
+      } finally {
+        synchronized (responseLock) {
+          pendingResponse = null;
+        }
+      }
+    }
+
+    /**
+     * Checks that the link takes writes with DLE EOT 1, which unlike ESC @ leaves the printer's buffer
+     * and modes alone, so a write can be resumed after it. The answer is kept out of the read stream.
+     */
+    void probe() throws IOException, InterruptedException {
+      if (statusReplies) {
+        request(PrinterCommands.TRANSMIT_DLE_PRINTER_STATUS, STATUS_REPLY_TIMEOUT_MS);
+      } else {
+        write(PrinterCommands.TRANSMIT_DLE_PRINTER_STATUS);
+        flushOutput();
       }
     }
 
@@ -2355,18 +3236,17 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
      * @throws IOException if write fails (e.g., broken pipe when printer is off)
      */
     public void write(byte[] bytes) throws IOException {
-      try {
-        synchronized (outputStream) {
-          outputStream.write(bytes);
-          outputStream.flush();
+      write(bytes, 0, bytes.length);
+    }
 
-          // Moderate delay for reliable writing after power cycle
-          try {
-            Thread.sleep(30); // Increased for better reliability
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-          }
-        }
+    /**
+     * Write a slice of {@code bytes} to the Bluetooth output stream
+     * Small writes are combined and sent when a frame is full, after a short idle time or on {@link #flushOutput()}
+     * @throws IOException if write fails (e.g., broken pipe when printer is off)
+     */
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      try {
+        outputStream.write(bytes, offset, length);
       } catch (IOException e) {
         Log.e(TAG, "Write failed: " + e.getMessage(), e);
         // Attempt to clean up if write fails
@@ -2383,175 +3263,119 @@ public class BlueThermalPrinterPlugin implements FlutterPlugin, ActivityAware,Me
       }
     }
     
-    public boolean writeWithValidation(byte[] bytes) {
-      if (bytes == null || bytes.length == 0) {
-        return false;
-      }
-      
-      try {
-        synchronized (outputStream) {
-          // Check if connection is still valid
-          if (mmSocket == null || !mmSocket.isConnected() || outputStream == null) {
-            Log.e(TAG, "Connection not valid for write operation");
-            return false;
-          }
-          
-          // Write data
-          outputStream.write(bytes);
-          outputStream.flush();
-          
-          // Wait for data to be transmitted (reduced delay)
-          Thread.sleep(WRITE_DELAY_MS); // Now 30ms instead of 100ms
-          
-          return true;
-        }
-      } catch (IOException e) {
-        Log.e(TAG, "WriteWithValidation failed: " + e.getMessage(), e);
-        
-        // Try to recover connection
-        try {
-          if (mmSocket != null && !mmSocket.isConnected()) {
-            Log.w(TAG, "Connection lost during write, cleaning up");
-            cancel();
-            THREAD = null;
-          }
-        } catch (Exception ex) {
-          Log.e(TAG, "Error during connection recovery: " + ex.getMessage(), ex);
-        }
-        
-        return false;
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        Log.e(TAG, "WriteWithValidation interrupted: " + e.getMessage(), e);
-        return false;
-      } catch (Exception e) {
-        Log.e(TAG, "Unexpected error in writeWithValidation: " + e.getMessage(), e);
-        return false;
-      }
+    /**
+     * Sends what the write combiner holds; called at the end of every print job.
+     */
+    public void flushOutput() throws IOException {
+      outputStream.flush();
     }
-    
-    public boolean writeWithValidationFast(byte[] bytes) {
-      if (bytes == null || bytes.length == 0) {
-        return false;
-      }
-      
-      try {
-        synchronized (outputStream) {
-          // Quick connection check
-          if (mmSocket == null || outputStream == null) {
-            return false;
-          }
-          
-          // Write data with minimal delay for speed
-          outputStream.write(bytes);
-          outputStream.flush();
-          
-          // Very short delay for fast transmission
-          Thread.sleep(FAST_WRITE_DELAY_MS); // 25ms delay
-          
-          return true;
-        }
-      } catch (IOException e) {
-        Log.e(TAG, "Fast write failed: " + e.getMessage(), e);
-        return false;
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        return false;
-      } catch (Exception e) {
-        Log.e(TAG, "Unexpected error in fast write: " + e.getMessage(), e);
+
+    /**
+     * Sends {@code length} bytes of {@code data} from {@code offset} in chunks, as {@code policy} says.
+     * @return false when the policy gave up, the failure is logged
+     */
+    public boolean send(byte[] data, int offset, int length, WritePolicy policy) {
+      if (data == null || length <= 0) {
         return false;
       }
+      return send(resumable(data, offset, length), policy);
     }
-    
-    public boolean writeWithValidationEnhanced(byte[] bytes) {
-      if (bytes == null || bytes.length == 0) {
-        return false;
-      }
-      
+
+    /**
+     * A write of {@code data} that retries pick up where it stopped, as this printer's resume mode says.
+     */
+    ResumableWrite resumable(byte[] data, int offset, int length) {
+      return new ResumableWrite(data, offset, length, PrinterProfile.of(address).resumeMode);
+    }
+
+    /**
+     * Sends what is left of {@code job} in chunks, as {@code policy} says.
+     * Chunks are slices of the job's data, written and flushed one at a time; their size comes from {@link #chunks}
+     * and they end on command or raster row boundaries ({@link CommandSegmenter}). A flushed chunk has only reached
+     * the socket, so every {@link #RESUME_CONFIRM_BYTES}, at a command boundary, the printer is sent DLE EOT 1; its
+     * answer shows it received everything before and that much is committed to the job. A failed chunk, or a later
+     * send of the same job, goes on from the last commit, the start when the printer never answers.
+     * @return false when the policy gave up, the failure is logged
+     */
+    public boolean send(ResumableWrite job, WritePolicy policy) {
+      int length = job.end - job.start;
+      int failures = 0;
+      int offset = job.resumeOffset();
+      byte[] replay = job.resumePrefix();
+      if (offset > job.start) {
+        Log.d(TAG, policy.name + " write: resuming at " + (offset - job.start) + "/" + length
+                + ", restoring " + replay.length + " bytes of state");
+      }
+      CommandSegmenter segments = new CommandSegmenter(job.data, offset, job.end - offset);
+      int unconfirmed = 0;
       try {
-        synchronized (outputStream) {
-          // Comprehensive connection validation
-          if (mmSocket == null || outputStream == null) {
-            Log.w(TAG, "Enhanced write: Connection components null");
+        while (offset < job.end) {
+          if (!policy.ready.ok()) {
+            Log.w(TAG, policy.name + " write: connection not ready at " + (offset - job.start) + "/" + length);
             return false;
           }
-          
-          if (!mmSocket.isConnected()) {
-            Log.w(TAG, "Enhanced write: Socket not connected");
-            return false;
-          }
-          
-          // Write data with enhanced error checking
-          outputStream.write(bytes);
-          outputStream.flush();
-          
-          // Wait appropriate time for reliable transmission after power cycle
-          Thread.sleep(WRITE_DELAY_MS); // 50ms for reliability
-          
-          // Additional flush to ensure data is sent
-          outputStream.flush();
-          
-          return true;
-        }
-      } catch (IOException e) {
-        Log.e(TAG, "Enhanced write failed: " + e.getMessage(), e);
-        
-        // Check if it's a connection issue that needs recovery
-        try {
-          if (mmSocket != null && !mmSocket.isConnected()) {
-            Log.w(TAG, "Connection lost during enhanced write");
-            cancel();
-            THREAD = null;
+          // chunks are never larger than the pacer's piece, so pacing only ever waits between them
+          int count = segments.next(offset, chunks.size()) - offset;
+          chunks.begin();
+          try {
+            synchronized (outputStream) {
+              if (replay.length > 0) {
+                write(replay, 0, replay.length);
+              }
+              write(job.data, offset, count);
+              outputStream.flush();
+            }
+            chunks.succeeded();
+            offset += count;
+            unconfirmed += count;
+            if (replay.length > 0) {
+              replay = new byte[0];
+            }
+            failures = 0;
+            if (unconfirmed >= RESUME_CONFIRM_BYTES && offset < job.end && job.resumes()
+                    && segments.endsCommand(offset) && printerReceived()) {
+              job.commit(offset);
+              unconfirmed = 0;
+            }
+          } catch (IOException e) {
+            chunks.failed();
+            Log.e(TAG, policy.name + " write failed at " + (offset - job.start) + "/" + length + ": " + e.getMessage(), e);
+            if (++failures >= policy.attempts || !policy.recover.ok()) {
+              return false;
+            }
+            // what the printer got after the last commit is unknown, or the recovery reset it
+            offset = job.resumeOffset();
+            replay = job.resumePrefix();
+            unconfirmed = 0;
+            segments = new CommandSegmenter(job.data, offset, job.end - offset);
           }
-        } catch (Exception ex) {
-          Log.e(TAG, "Error during enhanced write recovery: " + ex.getMessage(), ex);
         }
-        
-        return false;
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
-        Log.e(TAG, "Enhanced write interrupted: " + e.getMessage(), e);
-        return false;
-      } catch (Exception e) {
-        Log.e(TAG, "Unexpected error in enhanced write: " + e.getMessage(), e);
         return false;
       }
+      Log.d(TAG, policy.name + " write: " + length + " bytes written");
+      return true;
     }
-    
-    public boolean writeWithValidationUltraFast(byte[] bytes) {
-      if (bytes == null || bytes.length == 0) {
+
+    /**
+     * Asks the printer for its status; an answer means it received everything written before.
+     * @return false when it stayed silent, it is not asked again on this connection
+     */
+    private boolean printerReceived() throws IOException, InterruptedException {
+      if (!statusReplies) {
         return false;
       }
-      
-      try {
-        synchronized (outputStream) {
-          // Minimal validation for maximum speed
-          if (outputStream == null) {
-            return false;
-          }
-          
-          // Direct write with minimal delay for speed
-          outputStream.write(bytes);
-          outputStream.flush();
-          
-          // Ultra-fast delay - just enough to prevent buffer overflow
-          Thread.sleep(FAST_WRITE_DELAY_MS2); // 8ms for speed
-          
-          return true;
-        }
-      } catch (IOException e) {
-        Log.e(TAG, "Ultra-fast write failed: " + e.getMessage(), e);
-        return false;
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        return false;
-      } catch (Exception e) {
-        Log.e(TAG, "Unexpected error in ultra-fast write: " + e.getMessage(), e);
-        return false;
+      if (request(PrinterCommands.TRANSMIT_DLE_PRINTER_STATUS, STATUS_REPLY_TIMEOUT_MS).length > 0) {
+        return true;
       }
+      Log.w(TAG, "printer did not answer DLE EOT, failed writes will restart");
+      statusReplies = false;
+      return false;
     }
 
     public void cancel() {
+      queue.close();
       try {
         outputStream.flush();
         outputStream.close();
@@ -0,0 +1,72 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Picks the chunk size of chunked writes from how the link behaves (AIMD).
+ *
+ * Every chunk that reaches the socket within {@link #SLOW_LINK_NANOS} makes the
+ * next one {@link #INCREASE_BYTES} larger; a slower one or a failed write halves
+ * it. Only time spent in the socket counts ({@link WriteCombiner#linkNanos()}),
+ * not pacing, so the size settles where a chunk takes about that long on the
+ * air: large on a clean link, small on a noisy one. The size is kept in the
+ * printer's {@link PrinterProfile} and the next connection starts from it.
+ *
+ * It never grows past the piece {@link PacedOutputStream} paces as one write,
+ * so every chunk goes out whole and a change of size takes effect at once.
+ *
+ * Used by one job at a time, from the print queue thread.
+ */
+public class ChunkSizeController {
+    public static final int MIN_CHUNK_BYTES = 64;
+    public static final int MAX_CHUNK_BYTES = 16 * 1024;
+    static final int INCREASE_BYTES = 256;
+    static final long SLOW_LINK_NANOS = 200_000_000L;
+
+    private final WriteCombiner link;
+    private final PrinterProfile profile;
+    private int size;
+    private long chunkStart;
+
+    public ChunkSizeController(WriteCombiner link, PrinterProfile profile) {
+        this.link = link;
+        this.profile = profile;
+        this.size = clamp(profile.chunkSize);
+    }
+
+    public int size() {
+        // setPrintSpeed may have changed the receive buffer since the last update
+        size = clamp(size);
+        return size;
+    }
+
+    /**
+     * Call before writing a chunk.
+     */
+    public void begin() {
+        chunkStart = link.linkNanos();
+    }
+
+    /**
+     * Call once the chunk was written and flushed.
+     */
+    public void succeeded() {
+        if (link.linkNanos() - chunkStart > SLOW_LINK_NANOS) {
+            update(size / 2);
+        } else {
+            update(size + INCREASE_BYTES);
+        }
+    }
+
+    public void failed() {
+        update(size / 2);
+    }
+
+    private void update(int newSize) {
+        size = clamp(newSize);
+        profile.chunkSize = size;
+    }
+
+    private int clamp(int size) {
+        int max = Math.min(MAX_CHUNK_BYTES, PacedOutputStream.pieceBytes(profile));
+        return Math.max(Math.min(MIN_CHUNK_BYTES, max), Math.min(max, size));
+    }
+}
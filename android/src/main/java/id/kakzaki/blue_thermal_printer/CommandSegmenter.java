@@ -0,0 +1,86 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Cuts an ESC/POS payload into chunks that end where a command ends.
+ *
+ * A chunk cut at a fixed size can end inside a command header or a raster
+ * row; when the printer then waits for the next chunk, some models give up on
+ * the half command and print its bytes as text. Here the payload is walked
+ * command by command ({@link CommandWalker}), and a chunk ends at the last
+ * command boundary that fits. Raster data (GS v 0, GS ( L / GS 8 L function
+ * 112) too large for one chunk is cut between rows. Only other data larger
+ * than a chunk, a QR payload or the images of an FS q, is cut at the size
+ * limit.
+ *
+ * Chunks are asked for in order; asking again for the same start, after a
+ * failed write, gives a chunk for the new size from there.
+ */
+public class CommandSegmenter {
+    private final CommandWalker walker;
+    private final int end;
+
+    // where next() started from last, restored when it is asked for the same start again
+    private final CommandWalker mark;
+    private int markFrom = -1;
+
+    public CommandSegmenter(byte[] data, int offset, int length) {
+        this.walker = new CommandWalker(data, offset, length);
+        this.mark = new CommandWalker(data, offset, length);
+        this.end = offset + length;
+    }
+
+    /**
+     * End of the chunk starting at {@code from}, which is where the last chunk ended.
+     * @return the last boundary within {@code maxBytes}, or {@code from + maxBytes} when there is none
+     */
+    public int next(int from, int maxBytes) {
+        mark(from);
+        int limit = (int) Math.min(end, (long) from + Math.max(1, maxBytes));
+        int cut = -1;
+        while (true) {
+            if (walker.inData()) {
+                int dataStart = walker.dataStart();
+                int rowBytes = walker.rowBytes();
+                if (walker.dataEnd() > limit) {
+                    // between two rows, or before the command when not even its first row fits
+                    int row = rowBytes > 0 ? dataStart + (limit - dataStart) / rowBytes * rowBytes : dataStart;
+                    if (row > dataStart && row > from) {
+                        cut = row;
+                    }
+                    break;
+                }
+                walker.skipTo(walker.dataEnd());
+            }
+            int pos = walker.pos();
+            if (pos > from) {
+                cut = pos;
+            }
+            if (pos >= limit) {
+                break;
+            }
+            int length = walker.headerLength();
+            if (pos + length > limit) {
+                break;
+            }
+            walker.read(length);
+        }
+        return cut > from ? cut : limit;
+    }
+
+    /**
+     * True when the chunk ending at {@code at}, as {@link #next} returned it, ends between two commands
+     * rather than between raster rows or inside data.
+     */
+    public boolean endsCommand(int at) {
+        return at == walker.pos() && !walker.inData();
+    }
+
+    private void mark(int from) {
+        if (from == markFrom) {
+            walker.set(mark);
+            return;
+        }
+        markFrom = from;
+        mark.set(walker);
+    }
+}
@@ -0,0 +1,131 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Steps through an ESC/POS payload one command at a time.
+ *
+ * A step is either a command header, taken in with {@link #read(int)}, or the
+ * data it declares, passed over with {@link #skipTo(int)}. Header and data
+ * lengths are the ones {@link EscPosScanner} knows; the images of an FS q are
+ * the data of the FS q. Text bytes are one byte commands. {@link CommandSegmenter}
+ * cuts on the boundaries found here and {@link ResumableWrite} resumes from them.
+ */
+public class CommandWalker {
+    private static final int MAX_HEADER = 17;
+
+    private final byte[] data;
+    private final int end;
+
+    // everything before pos is split into commands; pos < dataEnd while in the data of the last one
+    private int pos;
+    private int commandStart;
+    private int dataStart;
+    private int dataEnd;
+    // the data of the last command is raster rows of rowBytes, 0 when it is not raster
+    private int rowBytes;
+
+    public CommandWalker(byte[] data, int offset, int length) {
+        this.data = data;
+        this.end = offset + length;
+        this.pos = offset;
+        this.commandStart = offset;
+        this.dataStart = offset;
+        this.dataEnd = offset;
+    }
+
+    /**
+     * Takes over the position of {@code other}, a walker of the same payload.
+     */
+    public void set(CommandWalker other) {
+        pos = other.pos;
+        commandStart = other.commandStart;
+        dataStart = other.dataStart;
+        dataEnd = other.dataEnd;
+        rowBytes = other.rowBytes;
+    }
+
+    public int pos() {
+        return pos;
+    }
+
+    public int commandStart() {
+        return commandStart;
+    }
+
+    public int dataStart() {
+        return dataStart;
+    }
+
+    public int dataEnd() {
+        return dataEnd;
+    }
+
+    public int rowBytes() {
+        return rowBytes;
+    }
+
+    /**
+     * True while {@link #pos()} is inside the data of the last command rather than on a boundary.
+     */
+    public boolean inData() {
+        return pos < dataEnd;
+    }
+
+    /**
+     * Passes over the data of the last command up to {@code to}, at most to its end.
+     */
+    public void skipTo(int to) {
+        pos = Math.max(pos, Math.min(dataEnd, to));
+    }
+
+    /**
+     * Length of the command header at {@link #pos()}, 1 for a text byte.
+     */
+    public int headerLength() {
+        byte b = data[pos];
+        if (b != PrinterCommands.ESC && b != PrinterCommands.GS && b != PrinterCommands.FS
+                && b != PrinterCommands.DLE) {
+            return 1;
+        }
+        int available = Math.min(MAX_HEADER, end - pos);
+        int length = EscPosScanner.headerLength(data, pos, available);
+        // a command cut short at the end of the payload has nothing to keep together
+        return length < 0 || length > available ? 1 : length;
+    }
+
+    /**
+     * Takes in the {@code length} byte command header at {@link #pos()} and sets up the data following it.
+     */
+    public void read(int length) {
+        commandStart = pos;
+        dataStart = pos + length;
+        rowBytes = 0;
+        long dataLength = 0;
+        if (length > 1) {
+            if (data[pos] == PrinterCommands.FS && data[pos + 1] == 'q') {
+                dataLength = nvImagesLength(dataStart, data[pos + 2] & 0xff);
+            } else {
+                dataLength = EscPosScanner.dataLength(data, pos, length);
+                rowBytes = EscPosScanner.rowBytes(data, pos, length);
+            }
+        }
+        dataEnd = (int) Math.min(end, dataStart + dataLength);
+        pos = dataStart;
+    }
+
+    /**
+     * Bytes of the {@code count} xL xH yL yH headed images of an FS q at {@code at}.
+     */
+    private long nvImagesLength(int at, int count) {
+        long length = 0;
+        for (int i = 0; i < count && at + length + 4 <= end; i++) {
+            int image = (int) (at + length);
+            // y in units of 8 dots
+            length += 4 + (long) word(image) * word(image + 2) * 8;
+        }
+        return length;
+    }
+
+    private int word(int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+    }
+}
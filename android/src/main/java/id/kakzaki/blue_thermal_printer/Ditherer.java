@@ -0,0 +1,252 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.util.Arrays;
+
+/**
+ * Turns pixel rows into packed 1bpp rows, optionally dithered.
+ *
+ * Colors are reduced to an 8 bit luminance row first (BT.601 weights from
+ * integer lookup tables, transparent pixels blended onto white paper), then
+ * dithered straight into packed bytes. Error diffusion only keeps the error
+ * of the next one or two rows, so memory is O(width) whatever the height.
+ *
+ * Modes:
+ * <ul>
+ *   <li>{@link #THRESHOLD} - the historic behaviour of {@link RasterEncoder#isDark}, no luminance step</li>
+ *   <li>{@link #FLOYD_STEINBERG} - full error diffusion, best for photos</li>
+ *   <li>{@link #ATKINSON} - diffuses 3/4 of the error, more contrast and less noise in light areas</li>
+ *   <li>{@link #ORDERED} - 8x8 Bayer matrix, no state between rows</li>
+ * </ul>
+ *
+ * Rows must be passed top to bottom; one instance per image and thread.
+ */
+public class Ditherer {
+    public static final String THRESHOLD = "threshold";
+    public static final String FLOYD_STEINBERG = "floyd-steinberg";
+    public static final String ATKINSON = "atkinson";
+    public static final String ORDERED = "ordered";
+
+    // rows an error diffusion run started mid image needs before its error is close to a full run's
+    public static final int WARM_UP_ROWS = 16;
+
+    private static final int MID_GRAY = 128;
+
+    private static final int[] LUMA_R = new int[256];
+    private static final int[] LUMA_G = new int[256];
+    private static final int[] LUMA_B = new int[256];
+
+    // Bayer matrix scaled to thresholds 2..254
+    private static final int[] BAYER_8X8 = {
+            0, 32, 8, 40, 2, 34, 10, 42,
+            48, 16, 56, 24, 50, 18, 58, 26,
+            12, 44, 4, 36, 14, 46, 6, 38,
+            60, 28, 52, 20, 62, 30, 54, 22,
+            3, 35, 11, 43, 1, 33, 9, 41,
+            51, 19, 59, 27, 49, 17, 57, 25,
+            15, 47, 7, 39, 13, 45, 5, 37,
+            63, 31, 55, 23, 61, 29, 53, 21
+    };
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            // weights sum to 256, so the shift in luminance() needs no rounding fix
+            LUMA_R[i] = 77 * i;
+            LUMA_G[i] = 150 * i;
+            LUMA_B[i] = 29 * i;
+        }
+        for (int i = 0; i < BAYER_8X8.length; i++) {
+            BAYER_8X8[i] = BAYER_8X8[i] * 4 + 2;
+        }
+    }
+
+    private final String mode;
+    private final int width;
+    private final byte[] lum;
+    // error rows, entry x + 1 belongs to pixel x; entry 0 swallows what falls off the left edge
+    private int[] error0;
+    private int[] error1;
+    private int[] error2;
+    private int row;
+
+    public static boolean isValidMode(String mode) {
+        return THRESHOLD.equals(mode) || FLOYD_STEINBERG.equals(mode)
+                || ATKINSON.equals(mode) || ORDERED.equals(mode);
+    }
+
+    public static boolean isDiffusion(String mode) {
+        return FLOYD_STEINBERG.equals(mode) || ATKINSON.equals(mode);
+    }
+
+    public Ditherer(String mode, int width) {
+        this.mode = mode;
+        this.width = width;
+        this.lum = new byte[width];
+        if (isDiffusion(mode)) {
+            error0 = new int[width + 1];
+            error1 = new int[width + 1];
+            error2 = ATKINSON.equals(mode) ? new int[width + 1] : null;
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the image row the next call handles; only {@link #ORDERED} output depends on it.
+     */
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    /**
+     * Packs one row of ARGB pixels into {@code dst} at {@code out}.
+     * @return the offset in {@code dst} after the packed row
+     */
+    public int packRow(int[] argb, byte[] dst, int out) {
+        if (THRESHOLD.equals(mode)) {
+            row++;
+            return RasterEncoder.packRow(argb, width, dst, out);
+        }
+        luminance(argb, width, lum);
+        return packLuminanceRow(lum, 0, dst, out);
+    }
+
+    /**
+     * Packs one row of 8 bit luminance values (0 black, 255 white) into {@code dst} at {@code out}.
+     * @return the offset in {@code dst} after the packed row
+     */
+    public int packLuminanceRow(byte[] src, int offset, byte[] dst, int out) {
+        int end;
+        switch (mode) {
+            case FLOYD_STEINBERG:
+                end = floydSteinberg(src, offset, dst, out);
+                break;
+            case ATKINSON:
+                end = atkinson(src, offset, dst, out);
+                break;
+            case ORDERED:
+                end = ordered(src, offset, dst, out);
+                break;
+            default:
+                end = threshold(src, offset, dst, out);
+                break;
+        }
+        row++;
+        return end;
+    }
+
+    /**
+     * ARGB to luminance; alpha blends towards white, the color of the paper.
+     */
+    public static void luminance(int[] argb, int width, byte[] lum) {
+        for (int x = 0; x < width; x++) {
+            int color = argb[x];
+            int y = (LUMA_R[(color >> 16) & 0xff] + LUMA_G[(color >> 8) & 0xff] + LUMA_B[color & 0xff]) >> 8;
+            int alpha = color >>> 24;
+            if (alpha != 0xff) {
+                y = 255 - ((255 - y) * alpha + 127) / 255;
+            }
+            lum[x] = (byte) y;
+        }
+    }
+
+    private int threshold(byte[] src, int offset, byte[] dst, int out) {
+        int bits = 0;
+        for (int x = 0; x < width; x++) {
+            bits = (bits << 1) | ((src[offset + x] & 0xff) <= RasterEncoder.WHITE_THRESHOLD ? 1 : 0);
+            if ((x & 7) == 7) {
+                dst[out++] = (byte) bits;
+                bits = 0;
+            }
+        }
+        return flush(bits, dst, out);
+    }
+
+    private int ordered(byte[] src, int offset, byte[] dst, int out) {
+        int matrixRow = (row & 7) << 3;
+        int bits = 0;
+        for (int x = 0; x < width; x++) {
+            bits = (bits << 1) | ((src[offset + x] & 0xff) < BAYER_8X8[matrixRow + (x & 7)] ? 1 : 0);
+            if ((x & 7) == 7) {
+                dst[out++] = (byte) bits;
+                bits = 0;
+            }
+        }
+        return flush(bits, dst, out);
+    }
+
+    private int floydSteinberg(byte[] src, int offset, byte[] dst, int out) {
+        int[] current = error0;
+        int[] next = error1;
+        // error still travelling right, and the next row's sums that are not final yet
+        int carry = 0;
+        int belowLeft = 0;
+        int below = 0;
+        int bits = 0;
+        for (int x = 0; x < width; x++) {
+            int value = (src[offset + x] & 0xff) + current[x + 1] + carry;
+            int black = (value - MID_GRAY) >>> 31;
+            int error = value - 255 + 255 * black;
+            bits = (bits << 1) | black;
+
+            int e7 = (error * 7) >> 4;
+            int e3 = (error * 3) >> 4;
+            int e5 = (error * 5) >> 4;
+            carry = e7;
+            next[x] = belowLeft + e3;
+            belowLeft = below + e5;
+            below = error - e7 - e3 - e5;
+            if ((x & 7) == 7) {
+                dst[out++] = (byte) bits;
+                bits = 0;
+            }
+        }
+        next[width] = belowLeft;
+        error0 = next;
+        error1 = current;
+        return flush(bits, dst, out);
+    }
+
+    private int atkinson(byte[] src, int offset, byte[] dst, int out) {
+        int[] current = error0;
+        int[] next = error1;
+        int[] after = error2;
+        int carry1 = 0;
+        int carry2 = 0;
+        int belowLeft = 0;
+        int below = 0;
+        int bits = 0;
+        for (int x = 0; x < width; x++) {
+            int value = (src[offset + x] & 0xff) + current[x + 1] + carry1;
+            int black = (value - MID_GRAY) >>> 31;
+            int error = value - 255 + 255 * black;
+            bits = (bits << 1) | black;
+
+            int eighth = error >> 3;
+            carry1 = carry2 + eighth;
+            carry2 = eighth;
+            next[x] += belowLeft + eighth;
+            belowLeft = below + eighth;
+            below = eighth;
+            after[x + 1] = eighth;
+            if ((x & 7) == 7) {
+                dst[out++] = (byte) bits;
+                bits = 0;
+            }
+        }
+        next[width] += belowLeft;
+        error0 = next;
+        error1 = after;
+        error2 = current;
+        return flush(bits, dst, out);
+    }
+
+    private int flush(int bits, byte[] dst, int out) {
+        int used = width & 7;
+        if (used != 0) {
+            dst[out++] = (byte) (bits << (8 - used));
+        }
+        return out;
+    }
+}
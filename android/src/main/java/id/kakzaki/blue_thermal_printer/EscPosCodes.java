@@ -0,0 +1,177 @@
+package id.kakzaki.blue_thermal_printer;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Builds the printer's own code commands, so only the payload and a few
+ * parameter bytes travel over Bluetooth instead of a rendered raster.
+ */
+public class EscPosCodes {
+    public static final String BARCODE_CODE128 = "CODE128";
+    public static final String BARCODE_EAN13 = "EAN13";
+    public static final String BARCODE_CODE39 = "CODE39";
+    public static final String BARCODE_ITF = "ITF";
+
+    private static final int QR_MAX_MODULE_SIZE = 16;
+    // the payload goes out as UTF-8, the version has to be sized for those bytes
+    private static final Map<EncodeHintType, ?> QR_UTF8 = Collections.singletonMap(EncodeHintType.CHARACTER_SET, "UTF-8");
+
+    // GS k function B symbologies
+    private static final byte GS_K_CODE39 = 69;
+    private static final byte GS_K_ITF = 70;
+    private static final byte GS_K_CODE128 = 73;
+
+    /**
+     * GS ( k sequence storing and printing a model 2 QR code with error correction L
+     * (the level zxing uses for the raster path). The module size is chosen so the
+     * symbol is as large as possible without exceeding {@code maxWidth} dots.
+     */
+    public static byte[] qrCode(String text, int maxWidth) throws WriterException {
+        byte[] data = text.getBytes(Charset.forName("UTF-8"));
+        // zxing also counts an ECI header the printer does not send, so the symbol is never larger than computed
+        int modules = Encoder.encode(text, ErrorCorrectionLevel.L, QR_UTF8).getVersion().getDimensionForVersion();
+        int moduleSize = Math.max(1, Math.min(QR_MAX_MODULE_SIZE, maxWidth / modules));
+
+        int storeLength = data.length + 3;
+        byte[] command = new byte[9 + 8 + 8 + 8 + data.length + 8];
+        int p = 0;
+        // fn 65 - model 2
+        p = put(command, p, PrinterCommands.GS, 0x28, 0x6B, 0x04, 0x00, 0x31, 0x41, 0x32, 0x00);
+        // fn 67 - module size
+        p = put(command, p, PrinterCommands.GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x43, moduleSize);
+        // fn 69 - error correction L
+        p = put(command, p, PrinterCommands.GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, 0x30);
+        // fn 80 - store data
+        p = put(command, p, PrinterCommands.GS, 0x28, 0x6B, storeLength & 0xff, storeLength >> 8, 0x31, 0x50, 0x30);
+        System.arraycopy(data, 0, command, p, data.length);
+        p += data.length;
+        // fn 81 - print
+        put(command, p, PrinterCommands.GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x51, 0x30);
+        return command;
+    }
+
+    /**
+     * GS h / GS w / GS H settings followed by GS k for a 1D barcode.
+     *
+     * @param height bar height in dots, 1..255
+     * @param width module width, 2..6
+     * @param hriPosition 0 none, 1 above, 2 below, 3 both
+     * @throws IllegalArgumentException if the type is unknown or the data does not fit it
+     */
+    public static byte[] barcode(String type, String data, int height, int width, int hriPosition) {
+        validateBarcode(type, data);
+
+        byte[] setHeight = Arrays.copyOf(PrinterCommands.SET_BAR_CODE_HEIGHT, 3);
+        setHeight[2] = (byte) Math.max(1, Math.min(255, height));
+        byte[] setWidth = Arrays.copyOf(PrinterCommands.SET_BAR_CODE_WIDTH, 3);
+        setWidth[2] = (byte) Math.max(2, Math.min(6, width));
+        byte[] setHri = Arrays.copyOf(PrinterCommands.SET_BAR_CODE_HRI_POSITION, 3);
+        setHri[2] = (byte) Math.max(0, Math.min(3, hriPosition));
+
+        byte[] print;
+        byte[] ascii = data.getBytes(Charset.forName("US-ASCII"));
+        if (BARCODE_EAN13.equals(type)) {
+            // function A, NUL terminated
+            print = Arrays.copyOf(PrinterCommands.PRINT_BAR_CODE_1, 3 + ascii.length + 1);
+            System.arraycopy(ascii, 0, print, 3, ascii.length);
+        } else {
+            byte m;
+            byte[] payload = ascii;
+            if (BARCODE_CODE39.equals(type)) {
+                m = GS_K_CODE39;
+            } else if (BARCODE_ITF.equals(type)) {
+                m = GS_K_ITF;
+            } else {
+                m = GS_K_CODE128;
+                // start in code set B, a literal '{' is sent as "{{"
+                int escaped = 0;
+                for (byte b : ascii) {
+                    if (b == '{') {
+                        escaped++;
+                    }
+                }
+                payload = new byte[ascii.length + escaped + 2];
+                payload[0] = '{';
+                payload[1] = 'B';
+                int p = 2;
+                for (byte b : ascii) {
+                    payload[p++] = b;
+                    if (b == '{') {
+                        payload[p++] = b;
+                    }
+                }
+            }
+            if (payload.length > 255) {
+                throw new IllegalArgumentException("barcode data is too long");
+            }
+            print = new byte[4 + payload.length];
+            print[0] = PrinterCommands.GS;
+            print[1] = 0x6B; // k
+            print[2] = m;
+            print[3] = (byte) payload.length;
+            System.arraycopy(payload, 0, print, 4, payload.length);
+        }
+
+        byte[] command = new byte[9 + print.length];
+        System.arraycopy(setHeight, 0, command, 0, 3);
+        System.arraycopy(setWidth, 0, command, 3, 3);
+        System.arraycopy(setHri, 0, command, 6, 3);
+        System.arraycopy(print, 0, command, 9, print.length);
+        return command;
+    }
+
+    /**
+     * zxing format for the raster fallback.
+     */
+    public static BarcodeFormat barcodeFormat(String type) {
+        if (BARCODE_EAN13.equals(type)) {
+            return BarcodeFormat.EAN_13;
+        } else if (BARCODE_CODE39.equals(type)) {
+            return BarcodeFormat.CODE_39;
+        } else if (BARCODE_ITF.equals(type)) {
+            return BarcodeFormat.ITF;
+        }
+        return BarcodeFormat.CODE_128;
+    }
+
+    public static void validateBarcode(String type, String data) {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException("barcode data is empty");
+        }
+        if (BARCODE_EAN13.equals(type)) {
+            if (!data.matches("\\d{12,13}")) {
+                throw new IllegalArgumentException("EAN13 needs 12 or 13 digits");
+            }
+        } else if (BARCODE_CODE39.equals(type)) {
+            if (!data.matches("[0-9A-Z $%*+\\-./]+") || data.length() > 255) {
+                throw new IllegalArgumentException("CODE39 accepts 0-9, A-Z, space and $%*+-./");
+            }
+        } else if (BARCODE_ITF.equals(type)) {
+            if (!data.matches("\\d+") || data.length() % 2 != 0 || data.length() > 254) {
+                throw new IllegalArgumentException("ITF needs an even number of digits");
+            }
+        } else if (BARCODE_CODE128.equals(type)) {
+            if (!data.matches("[\\x20-\\x7E]+") || data.length() > 253) {
+                throw new IllegalArgumentException("CODE128 accepts printable ASCII only");
+            }
+        } else {
+            throw new IllegalArgumentException("unknown barcode type '" + type + "'");
+        }
+    }
+
+    private static int put(byte[] dst, int p, int... values) {
+        for (int value : values) {
+            dst[p++] = (byte) value;
+        }
+        return p;
+    }
+}
@@ -0,0 +1,367 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Follows an ESC/POS byte stream and tells how far it moves the paper.
+ *
+ * The stream may be fed in pieces of any size; a command or its data split over
+ * two pieces is picked up where it was left. Commands are recognised by their
+ * header lengths and their data (raster rows, QR payloads, NV images...) is
+ * skipped by its declared length, so bytes inside graphics are never taken for
+ * line feeds. Paper movement is counted in dots: line feeds at the current
+ * line spacing, ESC J / ESC d feeds, raster rows (GS v 0, and GS ( L / GS 8 L
+ * function 112) spread over their data, and the barcode height for GS k.
+ * ESC @ resets are counted separately since the printer needs time for them
+ * without feeding.
+ */
+public class EscPosScanner {
+    // ESC 2, 1/6 inch at 203 dpi
+    public static final int DEFAULT_LINE_DOTS = 30;
+    // GS h default
+    static final int DEFAULT_BARCODE_DOTS = 162;
+    private static final int MAX_HEADER = 17;
+
+    private final byte[] header = new byte[MAX_HEADER];
+    private int headerLength;
+    private int nvImagesLeft;
+    // the header being collected is the size of an FS q image, not a command
+    private boolean nvImageHeader;
+    // data of the last command still to pass over, and the dots it prints spread across it
+    private long payloadLength;
+    private long payloadLeft;
+    private long payloadDots;
+    private long payloadCharged;
+    private int payloadRowBytes;
+
+    private int lineDots = DEFAULT_LINE_DOTS;
+    private int barcodeDots = DEFAULT_BARCODE_DOTS;
+
+    private long dots;
+    private int resets;
+
+    public EscPosScanner() {
+    }
+
+    private EscPosScanner(EscPosScanner other) {
+        System.arraycopy(other.header, 0, header, 0, MAX_HEADER);
+        headerLength = other.headerLength;
+        nvImagesLeft = other.nvImagesLeft;
+        nvImageHeader = other.nvImageHeader;
+        payloadLength = other.payloadLength;
+        payloadLeft = other.payloadLeft;
+        payloadDots = other.payloadDots;
+        payloadCharged = other.payloadCharged;
+        payloadRowBytes = other.payloadRowBytes;
+        lineDots = other.lineDots;
+        barcodeDots = other.barcodeDots;
+    }
+
+    /**
+     * Scans the next {@code length} bytes of the stream.
+     * @return the dots of paper they move; {@link #resets()} tells the ESC @ seen in them
+     */
+    public long scan(byte[] bytes, int offset, int length) {
+        dots = 0;
+        resets = 0;
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (payloadLeft > 0) {
+                int skip = (int) Math.min(payloadLeft, end - i);
+                payloadLeft -= skip;
+                i += skip;
+                long charged = payloadDots * (payloadLength - payloadLeft) / payloadLength;
+                dots += charged - payloadCharged;
+                payloadCharged = charged;
+                continue;
+            }
+            byte b = bytes[i++];
+            if (headerLength > 0 || nvImagesLeft > 0) {
+                if (headerLength == 0) {
+                    nvImageHeader = true;
+                }
+                header[headerLength++] = b;
+                int needed = nvImageHeader ? 4 : headerLength(header, 0, headerLength);
+                if (needed >= 0 && headerLength >= needed) {
+                    // GS ( L and GS 8 L are only told apart from fn 112 after 7 or 9 bytes, which can be
+                    // more than their header; the bytes beyond it are data already passed over
+                    command(headerLength);
+                    headerLength = 0;
+                }
+            } else if (b == PrinterCommands.ESC || b == PrinterCommands.GS || b == PrinterCommands.FS
+                    || b == PrinterCommands.DLE) {
+                header[headerLength++] = b;
+            } else if (b == PrinterCommands.LF) {
+                dots += lineDots;
+            }
+        }
+        return dots;
+    }
+
+    /**
+     * Bytes at {@code bytes[offset]} that still belong to the command the stream scanned so far
+     * stopped inside, 0 on a command boundary. The scanner itself does not move.
+     */
+    public int commandRest(byte[] bytes, int offset, int length) {
+        return rest(bytes, offset, length, false);
+    }
+
+    /**
+     * Bytes at {@code bytes[offset]} that finish the command header the stream stopped inside, 0 outside one.
+     */
+    public int headerRest(byte[] bytes, int offset, int length) {
+        return rest(bytes, offset, length, true);
+    }
+
+    private int rest(byte[] bytes, int offset, int length, boolean headerOnly) {
+        EscPosScanner probe = new EscPosScanner(this);
+        int end = offset + length;
+        int i = offset;
+        while (i < end && (probe.headerLength > 0
+                || !headerOnly && (probe.payloadLeft > 0 || probe.nvImagesLeft > 0))) {
+            int step = probe.payloadLeft > 0 ? (int) Math.min(probe.payloadLeft, end - i) : 1;
+            probe.scan(bytes, i, step);
+            i += step;
+        }
+        return i - offset;
+    }
+
+    /**
+     * Bytes left of the raster row the stream stopped inside, 0 on a row end, -1 outside raster data.
+     */
+    public int rowBytesLeft() {
+        if (payloadLeft == 0 || payloadRowBytes == 0) {
+            return -1;
+        }
+        return (int) (payloadLeft % payloadRowBytes);
+    }
+
+    /**
+     * Bytes per row of the raster data the stream is in, 0 outside raster data.
+     */
+    public int rowBytes() {
+        return rowBytesLeft() < 0 ? 0 : payloadRowBytes;
+    }
+
+    /**
+     * ESC @ commands in the bytes of the last {@link #scan}.
+     */
+    public int resets() {
+        return resets;
+    }
+
+    /**
+     * Bytes of the command starting at {@code cmd[offset]} before its data, -1 while more than
+     * the {@code n} bytes there are needed to tell.
+     */
+    static int headerLength(byte[] cmd, int offset, int n) {
+        if (n < 2) {
+            return -1;
+        }
+        int c = cmd[offset + 1] & 0xff;
+        switch (cmd[offset]) {
+            case PrinterCommands.ESC:
+                switch (c) {
+                    case '@': case '2': case '<': case 'i': case 'm': case 'D':
+                        return 2;
+                    case 'c': case 'B':
+                        return 4;
+                    case 'p': case '*':
+                        return 5;
+                    default:
+                        return 3;
+                }
+            case PrinterCommands.GS:
+                switch (c) {
+                    case 'v':
+                        return 8;
+                    case '(':
+                        // GS ( L fn 112 carries the raster size after m fn
+                        if (n < 3 || (cmd[offset + 2] == 'L' && n < 7)) {
+                            return -1;
+                        }
+                        return cmd[offset + 2] == 'L' && cmd[offset + 6] == 0x70 ? 15 : 5;
+                    case '8':
+                        if (n < 9) {
+                            return -1;
+                        }
+                        return cmd[offset + 8] == 0x70 ? 17 : 7;
+                    case 'k': case 'V':
+                        if (n < 3) {
+                            return -1;
+                        }
+                        int m = cmd[offset + 2] & 0xff;
+                        if (c == 'k') {
+                            return m >= 65 ? 4 : 3;
+                        }
+                        return m == 65 || m == 66 || m == 97 || m == 98 || m == 103 || m == 104 ? 4 : 3;
+                    case 'L': case 'W': case 'P': case '$': case '\\':
+                        return 4;
+                    default:
+                        return 3;
+                }
+            case PrinterCommands.FS:
+                switch (c) {
+                    case '.': case '&':
+                        return 2;
+                    case 'p':
+                        return 4;
+                    default:
+                        return 3;
+                }
+            default:
+                // DLE real time commands
+                return c == 0x14 ? 5 : c == 0x04 || c == 0x05 ? 3 : 2;
+        }
+    }
+
+    /**
+     * Bytes of data following the {@code length} byte header at {@code cmd[offset]}.
+     */
+    static long dataLength(byte[] cmd, int offset, int length) {
+        int c = cmd[offset + 1] & 0xff;
+        switch (cmd[offset]) {
+            case PrinterCommands.ESC:
+                // 8 dot modes send one byte per column, 24 dot modes three
+                return c == '*' ? (long) word(cmd, offset + 3) * ((cmd[offset + 2] & 0xff) >= 32 ? 3 : 1) : 0;
+            case PrinterCommands.GS:
+                switch (c) {
+                    case 'v':
+                        return (long) word(cmd, offset + 4) * word(cmd, offset + 6);
+                    case '(':
+                        return Math.max(0, word(cmd, offset + 3) - (length - 5));
+                    case '8':
+                        return Math.max(0, (word(cmd, offset + 3) | ((long) word(cmd, offset + 5) << 16)) - (length - 7));
+                    case 'k':
+                        return length == 4 ? cmd[offset + 3] & 0xff : 0;
+                    default:
+                        return 0;
+                }
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Bytes per raster row in the data of the command at {@code cmd[offset]}, 0 when it is not raster data.
+     */
+    static int rowBytes(byte[] cmd, int offset, int length) {
+        if (cmd[offset] != PrinterCommands.GS) {
+            return 0;
+        }
+        switch (cmd[offset + 1]) {
+            case 'v':
+                return word(cmd, offset + 4);
+            case '(':
+                // fn 112: a bx by c xL xH yL yH, x in dots
+                return length == 15 ? (word(cmd, offset + 11) + 7) / 8 : 0;
+            case '8':
+                return length == 17 ? (word(cmd, offset + 13) + 7) / 8 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    private void command(int length) {
+        if (nvImageHeader) {
+            // xL xH yL yH of the next FS q image, y in units of 8 dots
+            nvImageHeader = false;
+            nvImagesLeft--;
+            payload((long) word(header, 0) * word(header, 2) * 8, 0);
+            return;
+        }
+        int c = header[1] & 0xff;
+        switch (header[0]) {
+            case PrinterCommands.ESC:
+                escape(c, length);
+                break;
+            case PrinterCommands.GS:
+                group(c, length);
+                break;
+            case PrinterCommands.FS:
+                if (c == 'q') {
+                    nvImagesLeft = header[2] & 0xff;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void escape(int c, int length) {
+        int n = header[2] & 0xff;
+        switch (c) {
+            case '@':
+                resets++;
+                lineDots = DEFAULT_LINE_DOTS;
+                break;
+            case '2':
+                lineDots = DEFAULT_LINE_DOTS;
+                break;
+            case '3':
+                lineDots = n;
+                break;
+            case 'J':
+                dots += n;
+                break;
+            case 'd':
+                dots += (long) n * lineDots;
+                break;
+            case '*':
+                payload(dataLength(header, 0, length), 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void group(int c, int length) {
+        switch (c) {
+            case 'v': {
+                int m = header[3] & 0xff;
+                payload(dataLength(header, 0, length), (long) word(header, 6) * ((m & 2) != 0 ? 2 : 1),
+                        rowBytes(header, 0, length));
+                break;
+            }
+            case '(': {
+                // fn 112: a bx by c xL xH yL yH
+                long rasterDots = length == 15 ? (long) word(header, 13) * (header[9] & 0xff) : 0;
+                payload(dataLength(header, 0, length), rasterDots, rowBytes(header, 0, length));
+                break;
+            }
+            case '8': {
+                long rasterDots = length == 17 ? (long) word(header, 15) * (header[11] & 0xff) : 0;
+                payload(dataLength(header, 0, length), rasterDots, rowBytes(header, 0, length));
+                break;
+            }
+            case 'h':
+                barcodeDots = header[2] & 0xff;
+                break;
+            case 'k':
+                dots += barcodeDots;
+                payload(dataLength(header, 0, length), 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void payload(long length, long printedDots) {
+        payload(length, printedDots, 0);
+    }
+
+    private void payload(long length, long printedDots, int rowBytes) {
+        if (length <= 0) {
+            dots += printedDots;
+            return;
+        }
+        payloadLength = length;
+        payloadLeft = length;
+        payloadDots = printedDots;
+        payloadCharged = 0;
+        payloadRowBytes = rowBytes;
+    }
+
+    private static int word(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+}
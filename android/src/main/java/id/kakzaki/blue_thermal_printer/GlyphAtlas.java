@@ -0,0 +1,301 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.fonts.Font;
+import android.graphics.text.PositionedGlyphs;
+import android.graphics.text.TextRunShaper;
+import android.os.Build;
+import android.util.LruCache;
+
+import androidx.annotation.RequiresApi;
+
+import java.text.Bidi;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rasterizes text the printer's code pages cannot show (Arabic, Thai, emoji...)
+ * and keeps every rendered glyph as packed 1bpp in an LRU atlas.
+ *
+ * Lines are split into bidi runs and shaped by the Android text stack, so
+ * joining, ligatures and font fallback are the system's. From API 31 on each
+ * run is shaped with {@link TextRunShaper} and cached per font, size and glyph
+ * id; older releases fall back to rendering and caching whole words. Once a
+ * glyph is in the atlas, printing it again is a blit into a {@link PackedCanvas}.
+ */
+public class GlyphAtlas {
+    private static final int MAX_ATLAS_BYTES = 1024 * 1024;
+    // LruCache sizes entries by packed bytes; this covers the object itself
+    private static final int ENTRY_OVERHEAD_BYTES = 48;
+    // larger renders (big emoji, long words at large sizes) would push out hundreds of glyphs; they are drawn uncached
+    private static final int MAX_GLYPH_BYTES = MAX_ATLAS_BYTES / 64;
+
+    static final class Glyph {
+        final byte[] packed;
+        final int width;
+        final int height;
+        // offset of the top left corner from the pen position on the baseline
+        final int left;
+        final int top;
+
+        Glyph(byte[] packed, int width, int height, int left, int top) {
+            this.packed = packed;
+            this.width = width;
+            this.height = height;
+            this.left = left;
+            this.top = top;
+        }
+    }
+
+    private static final class Placed {
+        final Glyph glyph;
+        final int x;
+
+        Placed(Glyph glyph, int x) {
+            this.glyph = glyph;
+            this.x = x;
+        }
+    }
+
+    private final LruCache<String, Glyph> cache = new LruCache<String, Glyph>(MAX_ATLAS_BYTES) {
+        @Override
+        protected int sizeOf(String key, Glyph glyph) {
+            return glyph.packed.length + ENTRY_OVERHEAD_BYTES;
+        }
+    };
+    // guarded by this, set up anew by every drawText
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private long hits;
+    private long misses;
+
+    /**
+     * Draws {@code text} on the canvas, one line per '\n', the first line's top at {@code y}.
+     * Lines are clipped at the right edge, not wrapped.
+     *
+     * @param align {@link RasterOptimizer#ALIGN_LEFT}, {@link RasterOptimizer#ALIGN_CENTER} or {@link RasterOptimizer#ALIGN_RIGHT}
+     * @return the row below the last line
+     */
+    public synchronized int drawText(PackedCanvas canvas, String text, float size, boolean bold, int align, int y) {
+        paint.setColor(0xff000000);
+        paint.setTextSize(size);
+        paint.setTypeface(bold ? Typeface.DEFAULT_BOLD : Typeface.DEFAULT);
+        Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        int lineHeight = metrics.bottom - metrics.top;
+
+        for (String line : text.split("\n", -1)) {
+            if (!line.isEmpty()) {
+                drawLine(canvas, line, paint, bold, align, y - metrics.top);
+            }
+            y += lineHeight;
+        }
+        canvas.extendTo(y);
+        return y;
+    }
+
+    private void drawLine(PackedCanvas canvas, String line, Paint paint, boolean bold, int align, int baseline) {
+        List<Placed> placed = new ArrayList<>();
+        Bidi bidi = new Bidi(line, Bidi.DIRECTION_DEFAULT_LEFT_TO_RIGHT);
+        int runCount = bidi.getRunCount();
+        Integer[] runs = new Integer[runCount];
+        byte[] levels = new byte[runCount];
+        for (int i = 0; i < runCount; i++) {
+            runs[i] = i;
+            levels[i] = (byte) bidi.getRunLevel(i);
+        }
+        Bidi.reorderVisually(levels, 0, runs, 0, runCount);
+
+        float pen = 0;
+        for (Integer run : runs) {
+            int start = bidi.getRunStart(run);
+            int end = bidi.getRunLimit(run);
+            boolean rtl = (bidi.getRunLevel(run) & 1) != 0;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                pen = shapeRun(line, start, end, rtl, paint, pen, placed);
+            } else {
+                pen = layoutWords(line, start, end, rtl, paint, bold, pen, placed);
+            }
+        }
+
+        int minLeft = 0;
+        int maxRight = Math.round(pen);
+        for (Placed p : placed) {
+            minLeft = Math.min(minLeft, p.x + p.glyph.left);
+            maxRight = Math.max(maxRight, p.x + p.glyph.left + p.glyph.width);
+        }
+        int lineWidth = maxRight - minLeft;
+        int origin = -minLeft;
+        if (align == RasterOptimizer.ALIGN_CENTER) {
+            origin += Math.max(0, (canvas.getWidth() - lineWidth) / 2);
+        } else if (align == RasterOptimizer.ALIGN_RIGHT) {
+            origin += Math.max(0, canvas.getWidth() - lineWidth);
+        }
+
+        for (Placed p : placed) {
+            Glyph g = p.glyph;
+            int x = origin + p.x + g.left;
+            if (g.width == 0 || x >= canvas.getWidth()) {
+                continue;
+            }
+            canvas.drawRaster(g.packed, g.width, g.height, x, Math.max(0, baseline + g.top));
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.S)
+    private float shapeRun(String line, int start, int end, boolean rtl, Paint paint, float pen, List<Placed> placed) {
+        PositionedGlyphs glyphs = TextRunShaper.shapeTextRun(line, start, end - start, start, end - start,
+                pen, 0f, rtl, paint);
+        for (int i = 0, count = glyphs.glyphCount(); i < count; i++) {
+            Glyph glyph = glyph(glyphs.getFont(i), glyphs.getGlyphId(i), paint);
+            placed.add(new Placed(glyph, Math.round(glyphs.getGlyphX(i))));
+        }
+        return pen + glyphs.getAdvance();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.S)
+    private Glyph glyph(Font font, int glyphId, Paint paint) {
+        // bold comes from the font file, the paint's typeface is only used for font selection
+        String key = fontKey(font) + '|' + paint.getTextSize() + '|' + glyphId;
+        Glyph glyph = lookup(key);
+        if (glyph != null) {
+            return glyph;
+        }
+
+        Paint glyphPaint = new Paint(paint);
+        RectF bounds = new RectF();
+        font.getGlyphBounds(glyphId, glyphPaint, bounds);
+        Rect box = new Rect();
+        bounds.roundOut(box);
+        glyph = render(box, canvas -> canvas.drawGlyphs(new int[] {glyphId}, 0, new float[] {0f, 0f}, 0, 1,
+                font, glyphPaint));
+        store(key, glyph);
+        return glyph;
+    }
+
+    private float layoutWords(String line, int start, int end, boolean rtl, Paint paint, boolean bold, float pen,
+                              List<Placed> placed) {
+        float space = paint.measureText(" ");
+        String[] words = line.substring(start, end).split(" ", -1);
+        for (int i = 0; i < words.length; i++) {
+            // right to left runs are laid out from their last word
+            String word = words[rtl ? words.length - 1 - i : i];
+            if (i > 0) {
+                pen += space;
+            }
+            if (word.isEmpty()) {
+                continue;
+            }
+            Glyph glyph = word(word, paint, bold);
+            placed.add(new Placed(glyph, Math.round(pen)));
+            pen += paint.measureText(word);
+        }
+        return pen;
+    }
+
+    private Glyph word(String word, Paint paint, boolean bold) {
+        String key = "word|" + paint.getTextSize() + (bold ? "b" : "") + '|' + word;
+        Glyph glyph = lookup(key);
+        if (glyph != null) {
+            return glyph;
+        }
+        Rect box = new Rect();
+        paint.getTextBounds(word, 0, word.length(), box);
+        glyph = render(box, canvas -> canvas.drawText(word, 0f, 0f, paint));
+        store(key, glyph);
+        return glyph;
+    }
+
+    private interface Renderer {
+        void draw(Canvas canvas);
+    }
+
+    /**
+     * Draws into a bitmap covering {@code box} (relative to the pen on the baseline) and packs it.
+     */
+    private static Glyph render(Rect box, Renderer renderer) {
+        int width = box.width();
+        int height = box.height();
+        if (width <= 0 || height <= 0) {
+            return new Glyph(new byte[0], 0, 0, 0, 0);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.translate(-box.left, -box.top);
+        renderer.draw(canvas);
+
+        // transparent pixels are paper; color emoji go through luminance as well
+        int[] row = new int[width];
+        byte[] lum = new byte[width];
+        Ditherer threshold = new Ditherer(Ditherer.THRESHOLD, width);
+        byte[] packed = new byte[RasterEncoder.bytesPerRow(width) * height];
+        for (int y = 0, out = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            Ditherer.luminance(row, width, lum);
+            out = threshold.packLuminanceRow(lum, 0, packed, out);
+        }
+        bitmap.recycle();
+        return new Glyph(packed, width, height, box.left, box.top);
+    }
+
+    private static String fontKey(Font font) {
+        if (font.getFile() == null) {
+            // fonts built from buffers have no stable identity besides the object
+            return "font@" + System.identityHashCode(font);
+        }
+        StringBuilder key = new StringBuilder(font.getFile().getPath());
+        key.append('#').append(font.getTtcIndex());
+        if (font.getAxes() != null) {
+            for (Object axis : font.getAxes()) {
+                key.append(',').append(axis);
+            }
+        }
+        return key.toString();
+    }
+
+    private synchronized Glyph lookup(String key) {
+        Glyph glyph = cache.get(key);
+        if (glyph != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return glyph;
+    }
+
+    private void store(String key, Glyph glyph) {
+        if (glyph.packed.length <= MAX_GLYPH_BYTES) {
+            cache.put(key, glyph);
+        }
+    }
+
+    public synchronized void clear() {
+        cache.evictAll();
+        hits = 0;
+        misses = 0;
+    }
+
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("entries", cache.snapshot().size());
+        map.put("sizeBytes", cache.size());
+        map.put("maxBytes", cache.maxSize());
+        return map;
+    }
+}
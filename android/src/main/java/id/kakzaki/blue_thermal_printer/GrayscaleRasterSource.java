@@ -0,0 +1,40 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * 8 bit grayscale pixels from Dart (0 black, 255 white, one byte per pixel,
+ * row after row), dithered straight into raster rows.
+ */
+public class GrayscaleRasterSource implements RasterSource {
+    private final byte[] pixels;
+    private final int width;
+    private final int height;
+    private final Ditherer ditherer;
+
+    public GrayscaleRasterSource(byte[] pixels, int width, int height, String dither) {
+        if ((long) width * height > pixels.length) {
+            throw new IllegalArgumentException("pixels are shorter than width x height");
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.ditherer = new Ditherer(dither, width);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        ditherer.setRow(startRow);
+        for (int y = startRow; y < startRow + rows; y++) {
+            dstOffset = ditherer.packLuminanceRow(pixels, y * width, dst, dstOffset);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which logos are stored in which printer, per device address, so a
+ * logo is uploaded once and afterwards printed by key.
+ *
+ * Download graphics do not survive a power cycle and are forgotten whenever the
+ * device connects again. Every entry keeps its packed raster: FS q can only
+ * redefine the complete set, and {@link PackedCanvas} blits logos locally.
+ */
+public class LogoRegistry {
+
+    public static final class Logo {
+        public final String key;
+        public final String hash;
+        public final String storage;
+        final byte[] packed;
+        final int width;
+        final int height;
+
+        Logo(String key, String hash, String storage, byte[] packed, int width, int height) {
+            this.key = key;
+            this.hash = hash;
+            this.storage = storage;
+            this.packed = packed;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final Map<String, LinkedHashMap<String, Logo>> DEVICES = new HashMap<>();
+
+    public static synchronized Logo find(String address, String key) {
+        Map<String, Logo> logos = DEVICES.get(address);
+        return logos != null ? logos.get(key) : null;
+    }
+
+    public static synchronized boolean isStored(String address, String key, String hash, String storage) {
+        Logo logo = find(address, key);
+        return logo != null && logo.hash.equals(hash) && logo.storage.equals(storage);
+    }
+
+    public static synchronized void put(String address, String key, String hash, String storage,
+                                        byte[] packed, int width, int height) {
+        LinkedHashMap<String, Logo> logos = DEVICES.get(address);
+        if (logos == null) {
+            logos = new LinkedHashMap<>();
+            DEVICES.put(address, logos);
+        }
+        logos.put(key, new Logo(key, hash, storage, packed, width, height));
+    }
+
+    /**
+     * Legacy logos of a device in FS q order.
+     */
+    public static synchronized List<Logo> legacyLogos(String address) {
+        List<Logo> list = new ArrayList<>();
+        Map<String, Logo> logos = DEVICES.get(address);
+        if (logos != null) {
+            for (Logo logo : logos.values()) {
+                if (NvGraphics.STORAGE_LEGACY.equals(logo.storage)) {
+                    list.add(logo);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * FS p number of a legacy logo, 1 based, or 0 if it is unknown.
+     */
+    public static synchronized int legacyNumber(String address, String key) {
+        List<Logo> logos = legacyLogos(address);
+        for (int i = 0; i < logos.size(); i++) {
+            if (logos.get(i).key.equals(key)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    public static synchronized void onConnected(String address) {
+        Map<String, Logo> logos = DEVICES.get(address);
+        if (logos == null) {
+            return;
+        }
+        Iterator<Logo> it = logos.values().iterator();
+        while (it.hasNext()) {
+            if (NvGraphics.STORAGE_DOWNLOAD.equals(it.next().storage)) {
+                it.remove();
+            }
+        }
+    }
+
+    public static synchronized void forget(String address) {
+        DEVICES.remove(address);
+    }
+}
@@ -0,0 +1,139 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Commands for storing logos in the printer and printing them by reference.
+ *
+ * Three flavours are supported:
+ * <ul>
+ *   <li>NV graphics, GS ( L fn 67 / fn 69 - kept across power cycles, addressed by a two character key</li>
+ *   <li>download graphics, GS ( L fn 83 / fn 85 - same format, kept until the printer is switched off</li>
+ *   <li>legacy NV bit images, FS q / FS p - for printers without GS ( L, images are numbered and
+ *   FS q always replaces the whole set</li>
+ * </ul>
+ */
+public class NvGraphics {
+    public static final String STORAGE_NV = "nv";
+    public static final String STORAGE_DOWNLOAD = "download";
+    public static final String STORAGE_LEGACY = "legacy";
+
+    private static final byte FN_DEFINE_NV = 67;
+    private static final byte FN_PRINT_NV = 69;
+    private static final byte FN_DEFINE_DOWNLOAD = 83;
+    private static final byte FN_PRINT_DOWNLOAD = 85;
+
+    public static boolean isValidKey(String key) {
+        return key != null && key.length() == 2
+                && key.charAt(0) >= 32 && key.charAt(0) <= 126
+                && key.charAt(1) >= 32 && key.charAt(1) <= 126;
+    }
+
+    /**
+     * GS ( L (or GS 8 L for large images) defining raster graphics under {@code key}.
+     *
+     * @param packed rows packed MSB first, {@link RasterEncoder#bytesPerRow(int)} bytes each
+     */
+    public static byte[] define(String storage, String key, byte[] packed, int width, int height) {
+        int dataLength = RasterEncoder.bytesPerRow(width) * height;
+        // m fn a kc1 kc2 b xL xH yL yH c
+        int parameterLength = 11 + dataLength;
+        boolean extended = parameterLength > 0xffff;
+        int headerLength = extended ? 7 : 5;
+        byte[] command = new byte[headerLength + parameterLength];
+
+        int p = 0;
+        command[p++] = PrinterCommands.GS;
+        if (extended) {
+            command[p++] = 0x38; // 8
+            command[p++] = 0x4C; // L
+            command[p++] = (byte) parameterLength;
+            command[p++] = (byte) (parameterLength >> 8);
+            command[p++] = (byte) (parameterLength >> 16);
+            command[p++] = (byte) (parameterLength >> 24);
+        } else {
+            command[p++] = 0x28; // (
+            command[p++] = 0x4C; // L
+            command[p++] = (byte) parameterLength;
+            command[p++] = (byte) (parameterLength >> 8);
+        }
+        command[p++] = 0x30; // m
+        command[p++] = STORAGE_DOWNLOAD.equals(storage) ? FN_DEFINE_DOWNLOAD : FN_DEFINE_NV;
+        command[p++] = 0x30; // a - raster format
+        command[p++] = (byte) key.charAt(0);
+        command[p++] = (byte) key.charAt(1);
+        command[p++] = 0x01; // b - one color
+        command[p++] = (byte) width;
+        command[p++] = (byte) (width >> 8);
+        command[p++] = (byte) height;
+        command[p++] = (byte) (height >> 8);
+        command[p++] = 0x31; // c - color 1
+        System.arraycopy(packed, 0, command, p, dataLength);
+        return command;
+    }
+
+    /**
+     * GS ( L printing the graphics stored under {@code key} at normal scale.
+     */
+    public static byte[] print(String storage, String key) {
+        return new byte[] {
+                PrinterCommands.GS, 0x28, 0x4C, 0x06, 0x00, 0x30,
+                STORAGE_DOWNLOAD.equals(storage) ? FN_PRINT_DOWNLOAD : FN_PRINT_NV,
+                (byte) key.charAt(0), (byte) key.charAt(1),
+                0x01, 0x01 // x, y scale
+        };
+    }
+
+    /**
+     * FS q redefining the complete set of NV bit images. Images are numbered from 1
+     * in the order given. FS q takes column format data: every byte is 8 vertical
+     * dots, columns are sent left to right, each one top to bottom.
+     */
+    public static byte[] defineLegacy(byte[][] packedImages, int[] widths, int[] heights) {
+        int total = 3;
+        for (int i = 0; i < packedImages.length; i++) {
+            total += 4 + RasterEncoder.bytesPerRow(widths[i]) * 8 * ((heights[i] + 7) / 8);
+        }
+
+        byte[] command = new byte[total];
+        int p = 0;
+        command[p++] = PrinterCommands.FS;
+        command[p++] = 0x71; // q
+        command[p++] = (byte) packedImages.length;
+        for (int i = 0; i < packedImages.length; i++) {
+            int widthBytes = RasterEncoder.bytesPerRow(widths[i]);
+            int heightBytes = (heights[i] + 7) / 8;
+            command[p++] = (byte) widthBytes;
+            command[p++] = (byte) (widthBytes >> 8);
+            command[p++] = (byte) heightBytes;
+            command[p++] = (byte) (heightBytes >> 8);
+            p = toColumnFormat(packedImages[i], widthBytes, heights[i], command, p);
+        }
+        return command;
+    }
+
+    /**
+     * FS p printing legacy NV bit image {@code number} at normal scale.
+     */
+    public static byte[] printLegacy(int number) {
+        return new byte[] {PrinterCommands.FS, 0x70, (byte) number, 0x00};
+    }
+
+    private static int toColumnFormat(byte[] packed, int widthBytes, int height, byte[] dst, int out) {
+        int heightBytes = (height + 7) / 8;
+        for (int x = 0; x < widthBytes * 8; x++) {
+            int column = x >> 3;
+            int mask = 0x80 >> (x & 7);
+            for (int yb = 0; yb < heightBytes; yb++) {
+                int bits = 0;
+                for (int bit = 0; bit < 8; bit++) {
+                    int y = yb * 8 + bit;
+                    bits <<= 1;
+                    if (y < height && (packed[y * widthBytes + column] & mask) != 0) {
+                        bits |= 1;
+                    }
+                }
+                dst[out++] = (byte) bits;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,232 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Sends to the printer no faster than it prints.
+ *
+ * A token bucket the size of the printer's receive buffer: bytes are only
+ * written while the buffer, as modelled here, has room for them. The model
+ * drains every segment in the time the printer needs for it, taken from what
+ * the bytes do ({@link EscPosScanner}): raster rows and text lines cost the
+ * paper they feed at the profile's print speed, ESC @ costs
+ * {@link #RESET_NANOS}, other commands and text up to the line feed are free.
+ * So a text receipt streams at link speed while a large raster is held back
+ * to the rate the head can burn it.
+ *
+ * The wait for room comes before a write, never inside one: a write of up to
+ * {@link #pieceBytes()}, a quarter of the buffer, goes out whole. Larger writes
+ * are cut into pieces of that size on command or raster row boundaries
+ * ({@link CommandSegmenter}), so the link keeps the printer fed while it works
+ * through the rest and a pause never splits a command. A write that goes on
+ * with a command an earlier one began sends the rest of it first.
+ *
+ * Writes queue behind each other; the model has its own lock, held only to
+ * update it and never while waiting, so {@link #awaitIdle} is not held up by a
+ * write that waits for room.
+ */
+public class PacedOutputStream extends FilterOutputStream {
+    public static final int DOTS_PER_MM = 8;
+    static final long RESET_NANOS = 10_000_000L;
+
+    private static final class Segment {
+        double bytes;
+        long nanos;
+
+        Segment(double bytes, long nanos) {
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+    }
+
+    private final PrinterProfile profile;
+    private final Object writeLock = new Object();
+    // guarded by writeLock
+    private final EscPosScanner scanner = new EscPosScanner();
+    private final Object model = new Object();
+    // guarded by model: what the printer has received and not printed yet, oldest first
+    private final ArrayDeque<Segment> inFlight = new ArrayDeque<>();
+    private double buffered;
+    private long modelTime = System.nanoTime();
+
+    public PacedOutputStream(OutputStream out, PrinterProfile profile) {
+        super(out);
+        this.profile = profile;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        synchronized (writeLock) {
+            int piece = pieceBytes();
+            if (length <= piece) {
+                writePiece(bytes, offset, length);
+                return;
+            }
+            int end = offset + length;
+            // the segmenter starts on a boundary, the rest of a command begun before is its own data
+            for (int rest = offset + scanner.commandRest(bytes, offset, length); offset < rest; ) {
+                int header = scanner.headerRest(bytes, offset, rest - offset);
+                int count = header > 0 ? header : restPiece(piece, rest - offset);
+                writePiece(bytes, offset, count);
+                offset += count;
+            }
+            if (offset == end) {
+                return;
+            }
+            CommandSegmenter segments = new CommandSegmenter(bytes, offset, end - offset);
+            while (offset < end) {
+                int next = segments.next(offset, piece);
+                writePiece(bytes, offset, next - offset);
+                offset = next;
+            }
+        }
+    }
+
+    /**
+     * Next piece of the {@code left} bytes finishing a command, cut on a row end when it is raster data.
+     */
+    private int restPiece(int piece, int left) {
+        int count = Math.min(piece, left);
+        int row = scanner.rowBytes();
+        int toRowEnd = scanner.rowBytesLeft();
+        if (count == left || row == 0 || toRowEnd > count) {
+            return count;
+        }
+        int rowsEnd = toRowEnd + (count - toRowEnd) / row * row;
+        return rowsEnd > 0 ? rowsEnd : count;
+    }
+
+    /**
+     * Largest write that is paced as one; chunked writers that keep their chunks this size are never cut.
+     */
+    public int pieceBytes() {
+        return pieceBytes(profile);
+    }
+
+    static int pieceBytes(PrinterProfile profile) {
+        return Math.max(1, profile.receiveBufferBytes / 4);
+    }
+
+    private void writePiece(byte[] bytes, int offset, int count) throws IOException {
+        long dots = scanner.scan(bytes, offset, count);
+        acquire(count, dots * nanosPerDot() + scanner.resets() * RESET_NANOS);
+        out.write(bytes, offset, count);
+    }
+
+    /**
+     * Waits until the printer should have printed everything sent so far, or {@code timeoutMs} passed.
+     */
+    public void awaitIdle(long timeoutMs) throws IOException {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        out.flush();
+        long wait;
+        while ((wait = Math.min(remainingNanos(), deadline - System.nanoTime())) > 0) {
+            sleepNanos(wait);
+        }
+    }
+
+    private long nanosPerDot() {
+        return 1_000_000_000L / ((long) Math.max(1, profile.printSpeed) * DOTS_PER_MM);
+    }
+
+    private void acquire(int bytes, long nanos) throws IOException {
+        int capacity = Math.max(1, profile.receiveBufferBytes);
+        long wait;
+        synchronized (model) {
+            advance(System.nanoTime());
+            wait = buffered + bytes > capacity ? nanosUntilBuffered(capacity - bytes) : 0;
+        }
+        if (wait > 0) {
+            // what is buffered now reaches the printer first, it must be out of the way
+            out.flush();
+            sleepNanos(wait);
+        }
+        synchronized (model) {
+            advance(System.nanoTime());
+            Segment last = inFlight.peekLast();
+            if (last != null && last.nanos == 0 && nanos == 0) {
+                last.bytes += bytes;
+            } else {
+                inFlight.addLast(new Segment(bytes, nanos));
+            }
+            buffered += bytes;
+        }
+    }
+
+    /**
+     * Lets the model printer work from the last update until {@code now}: the oldest
+     * segment drains evenly over its print time, free segments at once.
+     */
+    private void advance(long now) {
+        long elapsed = now - modelTime;
+        modelTime = now;
+        Segment head;
+        while ((head = inFlight.peekFirst()) != null) {
+            if (head.nanos <= elapsed) {
+                elapsed -= head.nanos;
+                buffered -= head.bytes;
+                inFlight.pollFirst();
+            } else {
+                double drained = head.bytes * elapsed / head.nanos;
+                head.bytes -= drained;
+                head.nanos -= elapsed;
+                buffered -= drained;
+                break;
+            }
+        }
+        if (inFlight.isEmpty()) {
+            buffered = 0;
+        }
+    }
+
+    private long nanosUntilBuffered(double target) {
+        if (target < 0) {
+            target = 0;
+        }
+        double left = buffered;
+        long nanos = 0;
+        for (Segment segment : inFlight) {
+            if (left <= target) {
+                break;
+            }
+            if (left - segment.bytes <= target) {
+                return nanos + (long) Math.ceil(segment.nanos * (left - target) / segment.bytes);
+            }
+            left -= segment.bytes;
+            nanos += segment.nanos;
+        }
+        return nanos;
+    }
+
+    private long remainingNanos() {
+        synchronized (model) {
+            advance(System.nanoTime());
+            long nanos = 0;
+            for (Segment segment : inFlight) {
+                nanos += segment.nanos;
+            }
+            return nanos;
+        }
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("print pacing interrupted");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A receipt composed in packed 1bpp at the printer's dot width.
+ *
+ * Elements (logos, codes, glyphs, filled rectangles) are kept as the packed
+ * rasters they already are, together with their position. Nothing is drawn
+ * until the canvas is printed: every band is composed on request by OR-ing the
+ * rows of the elements that cross it, so a receipt costs one band plus its
+ * elements instead of a full page bitmap.
+ */
+public class PackedCanvas implements RasterSource {
+
+    private static final class Placement {
+        // null for a filled rectangle
+        final byte[] packed;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+
+        Placement(byte[] packed, int x, int y, int width, int height) {
+            this.packed = packed;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final int width;
+    private final int widthBytes;
+    private final List<Placement> placements = new ArrayList<>();
+    private int height;
+
+    public PackedCanvas(int width) {
+        this.width = width;
+        this.widthBytes = RasterEncoder.bytesPerRow(width);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Makes the canvas at least {@code height} rows tall, e.g. for space after the last element.
+     */
+    public void extendTo(int height) {
+        this.height = Math.max(this.height, height);
+    }
+
+    /**
+     * Places packed rows ({@link RasterEncoder#bytesPerRow(int)} bytes each) with their top left at x, y.
+     * Parts beyond the right edge are clipped.
+     */
+    public void drawRaster(byte[] packed, int rasterWidth, int rasterHeight, int x, int y) {
+        checkPosition(x, y);
+        if (packed.length < RasterEncoder.bytesPerRow(rasterWidth) * rasterHeight) {
+            throw new IllegalArgumentException("raster data is shorter than width x height");
+        }
+        placements.add(new Placement(packed, x, y, rasterWidth, rasterHeight));
+        extendTo(y + rasterHeight);
+    }
+
+    /**
+     * Packs {@code source} once and places it with its top left at x, y.
+     */
+    public void drawSource(RasterSource source, int x, int y) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        byte[] packed = new byte[RasterEncoder.bytesPerRow(sourceWidth) * sourceHeight];
+        source.packRows(0, sourceHeight, packed, 0);
+        drawRaster(packed, sourceWidth, sourceHeight, x, y);
+    }
+
+    public void fillRect(int x, int y, int rectWidth, int rectHeight) {
+        checkPosition(x, y);
+        placements.add(new Placement(null, x, y, Math.min(rectWidth, width - x), rectHeight));
+        extendTo(y + rectHeight);
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        Arrays.fill(dst, dstOffset, dstOffset + rows * widthBytes, (byte) 0);
+        int endRow = startRow + rows;
+        for (Placement p : placements) {
+            int from = Math.max(startRow, p.y);
+            int to = Math.min(endRow, p.y + p.height);
+            for (int y = from; y < to; y++) {
+                int rowOffset = dstOffset + (y - startRow) * widthBytes;
+                if (p.packed == null) {
+                    fillRow(dst, rowOffset, p.x, p.width);
+                } else {
+                    int stride = RasterEncoder.bytesPerRow(p.width);
+                    blitRow(p.packed, (y - p.y) * stride, stride, dst, rowOffset, p.x);
+                }
+            }
+        }
+        int tail = width & 7;
+        if (tail != 0) {
+            // clipped rasters may have spilled past the last dot
+            byte mask = (byte) (0xff << (8 - tail));
+            for (int i = dstOffset + widthBytes - 1, end = dstOffset + rows * widthBytes; i < end; i += widthBytes) {
+                dst[i] &= mask;
+            }
+        }
+    }
+
+    private void blitRow(byte[] src, int srcOffset, int srcBytes, byte[] dst, int rowOffset, int x) {
+        int shift = x & 7;
+        int first = x >> 3;
+        int count = Math.min(srcBytes, widthBytes - first);
+        for (int i = 0; i < count; i++) {
+            int bits = src[srcOffset + i] & 0xff;
+            if (bits == 0) {
+                continue;
+            }
+            int d = rowOffset + first + i;
+            dst[d] |= (byte) (bits >>> shift);
+            if (shift != 0 && first + i + 1 < widthBytes) {
+                dst[d + 1] |= (byte) (bits << (8 - shift));
+            }
+        }
+    }
+
+    private static void fillRow(byte[] dst, int rowOffset, int x, int length) {
+        for (int dot = x, end = x + length; dot < end; ) {
+            if ((dot & 7) == 0 && end - dot >= 8) {
+                dst[rowOffset + (dot >> 3)] = (byte) 0xff;
+                dot += 8;
+            } else {
+                dst[rowOffset + (dot >> 3)] |= (byte) (0x80 >> (dot & 7));
+                dot++;
+            }
+        }
+    }
+
+    private void checkPosition(int x, int y) {
+        if (x < 0 || x >= width || y < 0) {
+            throw new IllegalArgumentException("position " + x + "," + y + " is outside the canvas");
+        }
+    }
+}
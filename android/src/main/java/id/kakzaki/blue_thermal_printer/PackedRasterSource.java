@@ -0,0 +1,43 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Rows that are already packed: MSB first, {@link RasterEncoder#bytesPerRow(int)} bytes each.
+ */
+public class PackedRasterSource implements RasterSource {
+    private final byte[] packed;
+    private final int width;
+    private final int height;
+
+    public PackedRasterSource(byte[] packed, int width, int height) {
+        if ((long) RasterEncoder.bytesPerRow(width) * height > packed.length) {
+            throw new IllegalArgumentException("data is shorter than height rows of (width + 7) / 8 bytes");
+        }
+        this.packed = packed;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        int widthBytes = RasterEncoder.bytesPerRow(width);
+        System.arraycopy(packed, startRow * widthBytes, dst, dstOffset, rows * widthBytes);
+        int tail = width & 7;
+        if (tail != 0) {
+            // callers are not trusted to leave the padding bits clear
+            byte mask = (byte) (0xff << (8 - tail));
+            for (int i = dstOffset + widthBytes - 1, end = dstOffset + rows * widthBytes; i < end; i += widthBytes) {
+                dst[i] &= mask;
+            }
+        }
+    }
+}
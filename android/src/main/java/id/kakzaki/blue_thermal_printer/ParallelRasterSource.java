@@ -0,0 +1,145 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.graphics.Bitmap;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Packs large bitmaps on every core.
+ *
+ * Rows are split into runs of {@link #TASK_ROWS} rows that run as fork/join
+ * tasks, each with its own row buffer and writing to its own slice of the
+ * output, so the packed rows come out in order without any merging. Requests
+ * of at least a window are packed straight into the caller's array; smaller
+ * bands are packed ahead into a window of a bounded number of rows and copied
+ * out of it, so the extra memory never depends on the image height.
+ *
+ * Error diffusion carries state from row to row, so every task first dithers
+ * the {@link Ditherer#WARM_UP_ROWS} rows above its range and throws them away.
+ * That only approximates the error a single pass would carry into the range:
+ * a few pixels next to a seam can come out differently than in a serial run,
+ * but the error has mostly settled and no line shows where two tasks meet.
+ *
+ * Small images do not make up for the task overhead; {@link #of(Bitmap, String)}
+ * keeps them on the serial {@link BitmapRasterSource}.
+ */
+public class ParallelRasterSource implements RasterSource {
+    // below this many pixels the serial path is faster
+    static final int PARALLEL_MIN_PIXELS = 512 * 1024;
+    // rows packed by one task
+    static final int TASK_ROWS = 64;
+
+    private final Bitmap bitmap;
+    private final String dither;
+    private final ForkJoinPool pool;
+    private final int widthBytes;
+    private final int windowRows;
+    private byte[] window;
+    private int windowFirst;
+    private int windowCount;
+
+    /**
+     * The parallel source for big images when more than one core is available, the serial one otherwise.
+     */
+    public static RasterSource of(Bitmap bitmap, String dither) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (pool.getParallelism() < 2 || (long) bitmap.getWidth() * bitmap.getHeight() < PARALLEL_MIN_PIXELS) {
+            return new BitmapRasterSource(bitmap, dither);
+        }
+        return new ParallelRasterSource(bitmap, dither, pool);
+    }
+
+    ParallelRasterSource(Bitmap bitmap, String dither, ForkJoinPool pool) {
+        this.bitmap = bitmap;
+        this.dither = dither;
+        this.pool = pool;
+        this.widthBytes = RasterEncoder.bytesPerRow(bitmap.getWidth());
+        // a few tasks per worker keeps them all busy when rows take uneven time
+        this.windowRows = Math.min(bitmap.getHeight(), TASK_ROWS * pool.getParallelism() * 4);
+    }
+
+    @Override
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        if (rows >= windowRows) {
+            pool.invoke(new PackTask(dst, dstOffset - startRow * widthBytes, startRow, startRow + rows));
+            return;
+        }
+        int end = startRow + rows;
+        for (int row = startRow; row < end; ) {
+            if (row < windowFirst || row >= windowFirst + windowCount) {
+                fillWindow(row, windowRows);
+            }
+            int count = Math.min(end, windowFirst + windowCount) - row;
+            System.arraycopy(window, (row - windowFirst) * widthBytes, dst, dstOffset, count * widthBytes);
+            dstOffset += count * widthBytes;
+            row += count;
+        }
+    }
+
+    private void fillWindow(int first, int rows) {
+        rows = Math.min(rows, bitmap.getHeight() - first);
+        if (window == null || window.length < rows * widthBytes) {
+            window = new byte[rows * widthBytes];
+        }
+        windowFirst = first;
+        windowCount = rows;
+        pool.invoke(new PackTask(window, -first * widthBytes, first, first + rows));
+    }
+
+    /**
+     * Packs rows {@code start} to {@code end}, row y going to {@code base + y * widthBytes} of {@code out}.
+     */
+    private final class PackTask extends RecursiveAction {
+        private final byte[] out;
+        private final int base;
+        private final int start;
+        private final int end;
+
+        PackTask(byte[] out, int base, int start, int end) {
+            this.out = out;
+            this.base = base;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= TASK_ROWS) {
+                pack();
+                return;
+            }
+            int middle = start + (end - start) / 2;
+            invokeAll(new PackTask(out, base, start, middle), new PackTask(out, base, middle, end));
+        }
+
+        private void pack() {
+            int width = bitmap.getWidth();
+            int[] rowBuffer = new int[width];
+            Ditherer ditherer = new Ditherer(dither, width);
+            if (Ditherer.isDiffusion(dither)) {
+                byte[] scratch = new byte[widthBytes];
+                for (int y = Math.max(0, start - Ditherer.WARM_UP_ROWS); y < start; y++) {
+                    bitmap.getPixels(rowBuffer, 0, width, 0, y, width, 1);
+                    ditherer.packRow(rowBuffer, scratch, 0);
+                }
+            }
+            ditherer.setRow(start);
+            int offset = base + start * widthBytes;
+            for (int y = start; y < end; y++) {
+                bitmap.getPixels(rowBuffer, 0, width, 0, y, width, 1);
+                offset = ditherer.packRow(rowBuffer, out, offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Byte and timing counters for one print job, reported to Dart by getLastJobMetrics.
+ *
+ * rawBytes is what the job would have cost as plain GS v 0 / raster output,
+ * sentBytes is what actually went over the socket. Encoding and writing may
+ * run on different threads, hence the synchronized accessors.
+ */
+public class PrintJobMetrics {
+    private final String job;
+    private final long startNanos = System.nanoTime();
+    private long rawBytes;
+    private long sentBytes;
+    private long encodeNanos;
+    private long writeNanos;
+    private long totalNanos;
+    private String mode = "plain";
+    private boolean cacheHit;
+
+    public PrintJobMetrics(String job) {
+        this.job = job;
+    }
+
+    public synchronized void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public synchronized void setCacheHit(boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    public synchronized void addBytes(long raw, long sent) {
+        rawBytes += raw;
+        sentBytes += sent;
+    }
+
+    public synchronized void addEncodeNanos(long nanos) {
+        encodeNanos += nanos;
+    }
+
+    public synchronized void addWriteNanos(long nanos) {
+        writeNanos += nanos;
+    }
+
+    public synchronized void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Time the saved bytes would have taken at the throughput observed for this job.
+     */
+    public synchronized long estimatedTimeSavedMs() {
+        long saved = rawBytes - sentBytes;
+        if (saved <= 0 || sentBytes == 0 || writeNanos == 0) {
+            return 0;
+        }
+        return saved * writeNanos / sentBytes / 1000000L;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("job", job);
+        map.put("mode", mode);
+        map.put("cacheHit", cacheHit);
+        map.put("rawBytes", rawBytes);
+        map.put("sentBytes", sentBytes);
+        map.put("bytesSaved", Math.max(0, rawBytes - sentBytes));
+        map.put("encodeMs", encodeNanos / 1000000L);
+        map.put("writeMs", writeNanos / 1000000L);
+        map.put("totalMs", totalNanos / 1000000L);
+        map.put("timeSavedMs", estimatedTimeSavedMs());
+        return map;
+    }
+}
@@ -0,0 +1,190 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The print jobs of one connection, run one after the other on a thread of their own.
+ *
+ * Jobs are kept in a bounded FIFO. Submitting never blocks: it hands back a job
+ * id, or is refused once {@link #capacity} jobs are waiting, so callers see the
+ * backpressure instead of piling up work. Only the queue thread writes print
+ * data, so the bytes of two jobs can never interleave.
+ *
+ * {@link #shutdown()} lets the waiting jobs finish before the thread ends,
+ * {@link #close()} cancels them.
+ */
+public class PrintQueue {
+    private static final String TAG = "PrintQueue";
+    public static final int DEFAULT_CAPACITY = 32;
+
+    public interface Job {
+        void run() throws Exception;
+
+        /**
+         * Called instead of {@link #run()} when the queue is closed before the job started.
+         */
+        default void cancelled() {
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final String name;
+        final Job job;
+
+        Entry(long id, String name, Job job) {
+            this.id = id;
+            this.name = name;
+            this.job = job;
+        }
+    }
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    // queued by shutdown() to wake the thread and end it after the jobs before it
+    private static final Entry END = new Entry(0, "end", () -> { });
+
+    private final int capacity;
+    private final BlockingQueue<Entry> jobs;
+    private final Thread worker;
+    private volatile boolean accepting = true;
+    private volatile boolean closed;
+    private volatile Entry active;
+    private volatile long lastCompletedJob;
+    private volatile long failedJobs;
+    private volatile String lastError;
+
+    public PrintQueue(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    public PrintQueue(String name, int capacity) {
+        this.capacity = capacity;
+        // one slot more than jobs allowed, so END always fits
+        this.jobs = new ArrayBlockingQueue<>(capacity + 1);
+        this.worker = new Thread(this::drain, "PrintQueue-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a job behind the ones already waiting.
+     *
+     * @return the job id, increasing in submission order
+     * @throws RejectedExecutionException when the queue is full or closed
+     */
+    public synchronized long submit(String name, Job job) {
+        if (!accepting) {
+            throw new RejectedExecutionException("print queue is closed");
+        }
+        if (jobs.size() >= capacity) {
+            throw new RejectedExecutionException("print queue is full (" + capacity + " jobs)");
+        }
+        Entry entry = new Entry(NEXT_ID.getAndIncrement(), name, job);
+        jobs.add(entry);
+        return entry.id;
+    }
+
+    /**
+     * True once {@link #shutdown()} or {@link #close()} was called; submitting is refused from then on.
+     */
+    public boolean isClosed() {
+        return !accepting;
+    }
+
+    public int depth() {
+        return Math.min(jobs.size(), capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public Map<String, Object> status() {
+        Entry current = active;
+        Map<String, Object> map = new HashMap<>();
+        map.put("depth", depth());
+        map.put("capacity", capacity);
+        map.put("activeJob", current != null ? current.id : null);
+        map.put("activeJobName", current != null ? current.name : null);
+        map.put("lastCompletedJob", lastCompletedJob);
+        map.put("failedJobs", failedJobs);
+        map.put("lastError", lastError);
+        map.put("closed", !accepting);
+        return map;
+    }
+
+    /**
+     * Stops taking jobs; the ones already waiting still run.
+     */
+    public synchronized void shutdown() {
+        if (accepting) {
+            accepting = false;
+            jobs.add(END);
+        }
+    }
+
+    /**
+     * Waits for the jobs queued before {@link #shutdown()} to finish.
+     * @return false when they were still running after {@code timeoutMs}
+     */
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        worker.join(timeoutMs);
+        return !worker.isAlive();
+    }
+
+    /**
+     * Stops taking jobs and cancels those still waiting. The running job is interrupted.
+     */
+    public void close() {
+        accepting = false;
+        closed = true;
+        worker.interrupt();
+        cancelWaiting();
+    }
+
+    private void drain() {
+        while (!closed) {
+            Entry entry;
+            try {
+                entry = jobs.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (entry == END) {
+                break;
+            }
+            active = entry;
+            try {
+                entry.job.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Job " + entry.id + " (" + entry.name + ") failed: " + e.getMessage(), e);
+                failedJobs++;
+                lastError = e.getMessage();
+            } finally {
+                active = null;
+                lastCompletedJob = entry.id;
+                // a job that swallowed an interrupt must not take the queue down
+                if (!closed) {
+                    Thread.interrupted();
+                }
+            }
+        }
+        cancelWaiting();
+    }
+
+    private void cancelWaiting() {
+        Entry entry;
+        while ((entry = jobs.poll()) != null) {
+            if (entry != END) {
+                entry.job.cancelled();
+            }
+        }
+    }
+}
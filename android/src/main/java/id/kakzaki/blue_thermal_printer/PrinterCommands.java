@@ -24,6 +24,8 @@ public class PrinterCommands {
     public static byte[] SELECT_FONT_A = {20, 33, 0};
 
     public static byte[] SET_BAR_CODE_HEIGHT = {29, 104, 100};
+    public static byte[] SET_BAR_CODE_WIDTH = {29, 119, 2};
+    public static byte[] SET_BAR_CODE_HRI_POSITION = {29, 72, 2};
     public static byte[] PRINT_BAR_CODE_1 = {29, 107, 2};
     public static byte[] SEND_NULL_BYTE = {0x00};
 
@@ -0,0 +1,62 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per printer settings, keyed by device address and kept for the lifetime of the app.
+ */
+public class PrinterProfile {
+    public static final String QR_MODE_RASTER = "raster";
+    public static final String QR_MODE_NATIVE = "native";
+    public static final String BARCODE_MODE_NATIVE = "native";
+    public static final String BARCODE_MODE_RASTER = "raster";
+    public static final String RESUME_RESTART = "restart";
+    public static final String RESUME_FROM_OFFSET = "offset";
+    public static final String RESUME_WITH_STATE = "state";
+    // 80 mm heads; 58 mm printers have 384 dots and should call setPrinterWidth
+    public static final int DEFAULT_PRINTER_WIDTH = 576;
+    public static final int MAX_PRINTER_WIDTH = 4096;
+    // mm/s, the slow end of Bluetooth receipt printers
+    public static final int DEFAULT_PRINT_SPEED = 60;
+    public static final int MAX_PRINT_SPEED = 500;
+    public static final int DEFAULT_RECEIVE_BUFFER_BYTES = 4096;
+    public static final int DEFAULT_CHUNK_SIZE = 512;
+
+    private static final Map<String, PrinterProfile> PROFILES = new HashMap<>();
+
+    public static synchronized PrinterProfile of(String address) {
+        PrinterProfile profile = PROFILES.get(address);
+        if (profile == null) {
+            profile = new PrinterProfile();
+            PROFILES.put(address, profile);
+        }
+        return profile;
+    }
+
+    // zxing raster keeps working on every printer, GS ( k has to be switched on
+    public volatile String qrMode = QR_MODE_RASTER;
+    // GS k is part of every ESC/POS command set, raster is the fallback
+    public volatile String barcodeMode = BARCODE_MODE_NATIVE;
+    // images wider than this many dots are scaled down while decoding
+    public volatile int printerWidth = DEFAULT_PRINTER_WIDTH;
+    // paper feed rate and input buffer size, used to pace writes
+    public volatile int printSpeed = DEFAULT_PRINT_SPEED;
+    public volatile int receiveBufferBytes = DEFAULT_RECEIVE_BUFFER_BYTES;
+    // chunk size of chunked writes, learned from the link by ChunkSizeController
+    public volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+    // where a failed write is retried from, see ResumableWrite
+    public volatile String resumeMode = RESUME_WITH_STATE;
+
+    public static boolean isValidQrMode(String mode) {
+        return QR_MODE_RASTER.equals(mode) || QR_MODE_NATIVE.equals(mode);
+    }
+
+    public static boolean isValidBarcodeMode(String mode) {
+        return BARCODE_MODE_NATIVE.equals(mode) || BARCODE_MODE_RASTER.equals(mode);
+    }
+
+    public static boolean isValidResumeMode(String mode) {
+        return RESUME_RESTART.equals(mode) || RESUME_FROM_OFFSET.equals(mode) || RESUME_WITH_STATE.equals(mode);
+    }
+}
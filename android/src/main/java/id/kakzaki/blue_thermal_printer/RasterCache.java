@@ -0,0 +1,118 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of final raster command bytes, so a logo printed on every receipt
+ * is decoded and encoded only once.
+ *
+ * Keys combine the image identity (content hash, or path + modification time)
+ * with every parameter that changes the encoded output. The cache is bounded by
+ * the total number of bytes it holds and shrinks on memory pressure.
+ */
+public class RasterCache {
+    private static final long MAX_CACHE_BYTES = 8 * 1024 * 1024;
+
+    private final LruCache<String, byte[]> cache;
+    private long hits;
+    private long misses;
+
+    public RasterCache() {
+        this((int) Math.min(Runtime.getRuntime().maxMemory() / 32, MAX_CACHE_BYTES));
+    }
+
+    public RasterCache(int maxBytes) {
+        cache = new LruCache<String, byte[]>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                return value.length;
+            }
+        };
+    }
+
+    public static String keyOf(byte[] content, String params) {
+        return hashOf(content) + '|' + params;
+    }
+
+    /**
+     * Hex SHA-1 of {@code content}.
+     */
+    public static String hashOf(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(content);
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always present on Android
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String qrKeyOf(String text, int width, int height, String params) {
+        return "qr:" + width + 'x' + height + '|' + params + '|' + text;
+    }
+
+    public static String keyOf(String path, long lastModified, long length, String params) {
+        return path + '@' + lastModified + ':' + length + '|' + params;
+    }
+
+    /**
+     * Largest entry worth caching; anything bigger would evict most of the cache.
+     */
+    public int maxEntryBytes() {
+        return cache.maxSize() / 4;
+    }
+
+    public synchronized byte[] get(String key) {
+        byte[] value = cache.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public void put(String key, byte[] value) {
+        if (value.length <= maxEntryBytes()) {
+            cache.put(key, value);
+        }
+    }
+
+    public synchronized void clear() {
+        cache.evictAll();
+        hits = 0;
+        misses = 0;
+    }
+
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.size() / 2);
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("entries", cache.snapshot().size());
+        map.put("sizeBytes", cache.size());
+        map.put("maxBytes", cache.maxSize());
+        return map;
+    }
+}
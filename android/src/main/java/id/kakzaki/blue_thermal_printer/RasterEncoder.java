@@ -0,0 +1,99 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.graphics.Bitmap;
+
+/**
+ * Packs bitmaps into ESC/POS raster bit images (GS v 0).
+ *
+ * Pixels are read a row at a time with {@link Bitmap#getPixels} into a single
+ * reused int[] buffer and packed straight into the command array, so encoding
+ * allocates nothing besides the output and the row buffer.
+ */
+public class RasterEncoder {
+    // GS v 0 m xL xH yL yH
+    public static final int RASTER_HEADER_SIZE = 8;
+
+    // if every channel is above this, the pixel is treated as white (bit = 0)
+    public static final int WHITE_THRESHOLD = 160;
+
+    public static int bytesPerRow(int width) {
+        return (width + 7) >> 3;
+    }
+
+    /**
+     * Encodes the whole bitmap as a single GS v 0 command, on several cores when it is large.
+     */
+    public static byte[] encode(Bitmap bmp) {
+        int width = bmp.getWidth();
+        int height = bmp.getHeight();
+        int widthBytes = bytesPerRow(width);
+
+        byte[] command = new byte[RASTER_HEADER_SIZE + widthBytes * height];
+        writeHeader(command, 0, widthBytes, height);
+        ParallelRasterSource.of(bmp, Ditherer.THRESHOLD).packRows(0, height, command, RASTER_HEADER_SIZE);
+        return command;
+    }
+
+    /**
+     * Writes a GS v 0 header (normal scale) at {@code offset}.
+     * @return number of bytes written
+     */
+    public static int writeHeader(byte[] dst, int offset, int widthBytes, int height) {
+        dst[offset] = PrinterCommands.GS;
+        dst[offset + 1] = 0x76; // v
+        dst[offset + 2] = 0x30; // 0
+        dst[offset + 3] = 0x00; // m - normal
+        dst[offset + 4] = (byte) (widthBytes & 0xff);
+        dst[offset + 5] = (byte) ((widthBytes >> 8) & 0xff);
+        dst[offset + 6] = (byte) (height & 0xff);
+        dst[offset + 7] = (byte) ((height >> 8) & 0xff);
+        return RASTER_HEADER_SIZE;
+    }
+
+    /**
+     * Packs {@code rows} rows starting at {@code startRow} into {@code dst}, MSB first,
+     * {@link #bytesPerRow(int)} bytes per row. Trailing bits of the last byte stay 0.
+     *
+     * @param rowBuffer scratch buffer of at least {@code bmp.getWidth()} ints
+     */
+    public static void packRows(Bitmap bmp, int startRow, int rows, int[] rowBuffer, byte[] dst, int dstOffset) {
+        int width = bmp.getWidth();
+        int out = dstOffset;
+
+        for (int y = startRow; y < startRow + rows; y++) {
+            bmp.getPixels(rowBuffer, 0, width, 0, y, width, 1);
+            out = packRow(rowBuffer, width, dst, out);
+        }
+    }
+
+    /**
+     * Thresholds one row of ARGB pixels into {@code dst} at {@code out}.
+     * @return the offset in {@code dst} after the packed row
+     */
+    public static int packRow(int[] pixels, int width, byte[] dst, int out) {
+        int fullBytes = width >> 3;
+        int x = 0;
+        for (int i = 0; i < fullBytes; i++) {
+            int bits = 0;
+            for (int end = x + 8; x < end; x++) {
+                bits = (bits << 1) | (isDark(pixels[x]) ? 1 : 0);
+            }
+            dst[out++] = (byte) bits;
+        }
+        if (x < width) {
+            int bits = 0;
+            int used = width - x;
+            for (; x < width; x++) {
+                bits = (bits << 1) | (isDark(pixels[x]) ? 1 : 0);
+            }
+            dst[out++] = (byte) (bits << (8 - used));
+        }
+        return out;
+    }
+
+    static boolean isDark(int color) {
+        return ((color >> 16) & 0xff) <= WHITE_THRESHOLD
+                || ((color >> 8) & 0xff) <= WHITE_THRESHOLD
+                || (color & 0xff) <= WHITE_THRESHOLD;
+    }
+}
@@ -0,0 +1,141 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.io.IOException;
+
+/**
+ * Removes white space from packed raster bands before they are sent.
+ *
+ * Blank rows before the first and after the last printed row are dropped,
+ * longer runs of blank rows inside the image become ESC J paper feeds, and
+ * blank byte columns are trimmed from each printed segment. Trimming follows
+ * the alignment the image is printed with so it lands on the same dots:
+ * centered images lose the same number of bytes on both sides, left aligned
+ * images only on the right and right aligned images only on the left.
+ *
+ * ESC J n feeds n vertical motion units, which is one dot row on the
+ * 203 dpi heads of 58/80 mm receipt printers.
+ *
+ * One instance handles one image; bands must be passed in order.
+ */
+public class RasterOptimizer {
+    public static final int ALIGN_LEFT = 0;
+    public static final int ALIGN_CENTER = 1;
+    public static final int ALIGN_RIGHT = 2;
+
+    // A blank run is only worth a feed (and a new raster header) above this many bytes
+    private static final int FEED_BREAK_EVEN_BYTES = 16;
+    private static final int MAX_FEED_PER_COMMAND = 255;
+
+    public interface Sink {
+        /**
+         * Emits {@code rows} rows of {@code rowBytes} bytes, rows start {@code stride} bytes apart.
+         */
+        void raster(byte[] src, int offset, int stride, int rowBytes, int rows) throws IOException;
+
+        /**
+         * Emits a paper feed of {@code dots} rows, at most {@link #MAX_FEED_PER_COMMAND}.
+         */
+        void feed(int dots) throws IOException;
+    }
+
+    private final int widthBytes;
+    private final int align;
+    private final int minFeedRows;
+    private boolean contentSeen;
+    private int pendingBlankRows;
+
+    public RasterOptimizer(int widthBytes, int align) {
+        this.widthBytes = widthBytes;
+        this.align = align;
+        this.minFeedRows = FEED_BREAK_EVEN_BYTES / widthBytes + 1;
+    }
+
+    /**
+     * Emits the optimized form of one band of packed rows. Blank rows at the end of
+     * the band are held back until the next band shows whether more content follows.
+     */
+    public void processBand(byte[] packed, int rows, Sink sink) throws IOException {
+        int row = 0;
+        while (row < rows) {
+            if (isBlankRow(packed, row)) {
+                pendingBlankRows++;
+                row++;
+                continue;
+            }
+
+            if (contentSeen) {
+                emitFeed(pendingBlankRows, sink);
+            }
+            pendingBlankRows = 0;
+            contentSeen = true;
+
+            int start = row;
+            int end = ++row;
+            while (row < rows) {
+                if (!isBlankRow(packed, row)) {
+                    end = ++row;
+                    continue;
+                }
+                int blankEnd = row;
+                while (blankEnd < rows && isBlankRow(packed, blankEnd)) {
+                    blankEnd++;
+                }
+                if (blankEnd == rows || blankEnd - row >= minFeedRows) {
+                    break;
+                }
+                // short gap, cheaper to keep it in the raster
+                row = blankEnd;
+            }
+            emitSegment(packed, start, end, sink);
+        }
+    }
+
+    private void emitSegment(byte[] packed, int start, int end, Sink sink) throws IOException {
+        int left = widthBytes;
+        int right = widthBytes;
+        for (int row = start; row < end; row++) {
+            int offset = row * widthBytes;
+            int l = 0;
+            while (l < left && packed[offset + l] == 0) {
+                l++;
+            }
+            left = l;
+            int r = 0;
+            while (r < right && packed[offset + widthBytes - 1 - r] == 0) {
+                r++;
+            }
+            right = r;
+        }
+        switch (align) {
+            case ALIGN_CENTER:
+                left = right = Math.min(left, right);
+                break;
+            case ALIGN_RIGHT:
+                right = 0;
+                break;
+            default:
+                left = 0;
+                break;
+        }
+
+        sink.raster(packed, start * widthBytes + left, widthBytes, widthBytes - left - right, end - start);
+    }
+
+    private static void emitFeed(int rows, Sink sink) throws IOException {
+        while (rows > 0) {
+            int dots = Math.min(rows, MAX_FEED_PER_COMMAND);
+            sink.feed(dots);
+            rows -= dots;
+        }
+    }
+
+    private boolean isBlankRow(byte[] packed, int row) {
+        int offset = row * widthBytes;
+        for (int i = offset, end = offset + widthBytes; i < end; i++) {
+            if (packed[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
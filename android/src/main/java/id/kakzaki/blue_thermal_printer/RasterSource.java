@@ -0,0 +1,25 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.io.Closeable;
+
+/**
+ * Something that can be packed into 1bpp raster rows, band by band.
+ */
+public interface RasterSource extends Closeable {
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Packs {@code rows} rows starting at {@code startRow} into {@code dst}, MSB first,
+     * {@link RasterEncoder#bytesPerRow(int)} bytes per row. Trailing bits of the last byte stay 0.
+     */
+    void packRows(int startRow, int rows, byte[] dst, int dstOffset);
+
+    /**
+     * Frees native resources held for decoding; the source is not used afterwards.
+     */
+    @Override
+    default void close() {
+    }
+}
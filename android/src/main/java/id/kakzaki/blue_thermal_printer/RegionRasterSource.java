@@ -0,0 +1,114 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Decodes a tall image strip by strip while it is packed, so only one strip of
+ * {@link #STRIP_ROWS} rows is ever in memory however long the document is.
+ *
+ * Every strip is decoded into the same bitmap through
+ * {@link BitmapFactory.Options#inBitmap}. Like {@link ScaledBitmapDecoder}, wide
+ * images are subsampled while decoding and box filtered to the target width.
+ */
+public class RegionRasterSource implements RasterSource {
+    // rows per decoded strip, after subsampling
+    static final int STRIP_ROWS = 128;
+
+    private final BitmapRegionDecoder decoder;
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+    private final Rect region = new Rect();
+    private final int sample;
+    private final int sourceHeight;
+    private final int sampledWidth;
+    private final int width;
+    private final int height;
+    private final boolean scaled;
+    private final int[] columnStart;
+    private final int[] rowStart;
+    private final int[] srcRow;
+    private final int[] dstRow;
+    private final int[] sums;
+    private final Bitmap strip;
+    private final Ditherer ditherer;
+    private int stripFirst = -1;
+    private int stripRows;
+
+    public RegionRasterSource(BitmapRegionDecoder decoder, int targetWidth, String dither) {
+        this.decoder = decoder;
+        int sourceWidth = decoder.getWidth();
+        sourceHeight = decoder.getHeight();
+        sample = ScaledBitmapDecoder.sampleSizeFor(sourceWidth, targetWidth);
+        sampledWidth = Math.max(1, sourceWidth / sample);
+        int sampledHeight = Math.max(1, sourceHeight / sample);
+        width = targetWidth > 0 ? Math.min(targetWidth, sampledWidth) : sampledWidth;
+        height = Math.max(1, (int) ((long) sampledHeight * width / sampledWidth));
+        scaled = width != sampledWidth;
+
+        columnStart = ScaledBitmapDecoder.boxEdges(sampledWidth, width);
+        rowStart = scaled ? ScaledBitmapDecoder.boxEdges(sampledHeight, height) : null;
+        srcRow = new int[sampledWidth];
+        dstRow = scaled ? new int[width] : srcRow;
+        sums = scaled ? new int[width * 4] : null;
+        ditherer = new Ditherer(dither, width);
+
+        // The region decoder draws into inBitmap and clips, its size and config stay as they are
+        strip = Bitmap.createBitmap(sampledWidth, Math.min(STRIP_ROWS, sampledHeight), Bitmap.Config.RGB_565);
+        options.inSampleSize = sample;
+        options.inBitmap = strip;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        int out = dstOffset;
+        ditherer.setRow(startRow);
+        for (int y = startRow; y < startRow + rows; y++) {
+            if (!scaled) {
+                readRow(y);
+            } else {
+                Arrays.fill(sums, 0);
+                for (int sy = rowStart[y]; sy < rowStart[y + 1]; sy++) {
+                    readRow(sy);
+                    ScaledBitmapDecoder.accumulate(srcRow, columnStart, sums);
+                }
+                ScaledBitmapDecoder.average(sums, columnStart, rowStart[y + 1] - rowStart[y], dstRow);
+            }
+            out = ditherer.packRow(dstRow, dst, out);
+        }
+    }
+
+    /**
+     * Reads subsampled row {@code row} into {@link #srcRow}, decoding the strip that starts there if needed.
+     */
+    private void readRow(int row) {
+        if (row < stripFirst || row >= stripFirst + stripRows) {
+            int top = row * sample;
+            int bottom = Math.min((row + strip.getHeight()) * sample, sourceHeight);
+            region.set(0, top, sampledWidth * sample, bottom);
+            decoder.decodeRegion(region, options);
+            stripFirst = row;
+            stripRows = Math.min(strip.getHeight(), (bottom - top) / sample);
+        }
+        strip.getPixels(srcRow, 0, sampledWidth, 0, row - stripFirst, sampledWidth, 1);
+    }
+
+    @Override
+    public void close() {
+        decoder.recycle();
+        strip.recycle();
+    }
+}
@@ -0,0 +1,158 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A payload being sent to the printer, and how much of it has been taken.
+ *
+ * {@link BlueThermalPrinterPlugin}'s send commits up to a command boundary once
+ * the printer answered a DLE EOT status request sent after it, which shows it
+ * received everything before; a flushed write has only reached the socket. So a
+ * write that failed half way can be picked up from the last commit instead of
+ * printing the receipt again from the top. The state the rest depends on is
+ * collected while committing: the last alignment, print mode, character size,
+ * line spacing and code page commands. What a resumed write does with it is the
+ * {@link PrinterProfile#resumeMode}:
+ * <ul>
+ * <li>{@code restart}: starts over from the first byte</li>
+ * <li>{@code offset}: goes on from the last committed command, sends no state</li>
+ * <li>{@code state} (default): sends the mode commands first, then goes on from the last committed command</li>
+ * </ul>
+ * A commit inside the data of a command (a raster, a QR payload, an NV image...)
+ * resumes from the start of that command, which is sent again whole.
+ * Nothing is committed on a printer that does not answer DLE EOT, there every
+ * mode restarts.
+ *
+ * A job lives as long as the call that sends it, on one connection. After a
+ * disconnect the call fails and the job is dropped; reconnecting does not bring
+ * it back, it has to be printed again.
+ */
+public class ResumableWrite {
+    private static final byte[] NONE = new byte[0];
+
+    public final byte[] data;
+    public final int start;
+    public final int end;
+    private final String mode;
+
+    private int committed;
+    // split into commands up to the commit
+    private final CommandWalker walker;
+    // mode commands committed so far, the last of each kind
+    private final Map<Integer, byte[]> modes = new LinkedHashMap<>();
+
+    public ResumableWrite(byte[] data, int offset, int length, String mode) {
+        this.data = data;
+        this.start = offset;
+        this.end = offset + length;
+        this.mode = mode;
+        this.committed = offset;
+        this.walker = new CommandWalker(data, offset, length);
+    }
+
+    public int committed() {
+        return committed;
+    }
+
+    public boolean done() {
+        return committed >= end;
+    }
+
+    /**
+     * False in {@code restart} mode, where commits would not change where a retry goes on from.
+     */
+    public boolean resumes() {
+        return !PrinterProfile.RESUME_RESTART.equals(mode);
+    }
+
+    /**
+     * Marks everything up to {@code to} as taken by the printer.
+     */
+    public void commit(int to) {
+        committed = Math.max(committed, Math.min(end, to));
+        while (walker.pos() < committed) {
+            if (walker.inData()) {
+                walker.skipTo(committed);
+                continue;
+            }
+            int at = walker.pos();
+            int length = walker.headerLength();
+            if (at + length > committed) {
+                break;
+            }
+            walker.read(length);
+            remember(at, length);
+        }
+    }
+
+    /**
+     * Where a retry goes on from.
+     */
+    public int resumeOffset() {
+        if (PrinterProfile.RESUME_RESTART.equals(mode)) {
+            return start;
+        }
+        return walker.inData() ? walker.commandStart() : walker.pos();
+    }
+
+    /**
+     * Commands to send before the bytes from {@link #resumeOffset()}, empty when nothing needs restoring.
+     */
+    public byte[] resumePrefix() {
+        if (!PrinterProfile.RESUME_WITH_STATE.equals(mode) || resumeOffset() == start) {
+            return NONE;
+        }
+        ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+        for (byte[] command : modes.values()) {
+            prefix.write(command, 0, command.length);
+        }
+        return prefix.toByteArray();
+    }
+
+    /**
+     * Keeps the mode command read at {@code at}, an ESC @ forgets them all.
+     */
+    private void remember(int at, int length) {
+        if (length < 2) {
+            return;
+        }
+        if (data[at] == PrinterCommands.ESC && data[at + 1] == '@') {
+            modes.clear();
+        } else if (isMode(data[at], data[at + 1] & 0xff)) {
+            int key = modeKey((data[at] & 0xff) << 8 | (data[at + 1] & 0xff));
+            byte[] command = new byte[length];
+            System.arraycopy(data, at, command, 0, length);
+            modes.remove(key);
+            modes.put(key, command);
+        }
+    }
+
+    private static boolean isMode(byte prefix, int c) {
+        switch (prefix) {
+            case PrinterCommands.ESC:
+                return c == 'a' || c == '!' || c == 'E' || c == '-' || c == 'M' || c == 'G' || c == 't'
+                        || c == 'R' || c == '{' || c == ' ' || c == '2' || c == '3';
+            case PrinterCommands.GS:
+                return c == '!' || c == 'B' || c == 'L' || c == 'W';
+            case PrinterCommands.FS:
+                return c == '&' || c == '.';
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Commands that undo each other share a key: ESC 2 / ESC 3 and FS & / FS .
+     */
+    private static int modeKey(int key) {
+        if (key == (PrinterCommands.ESC << 8 | '2')) {
+            return PrinterCommands.ESC << 8 | '3';
+        }
+        if (key == (PrinterCommands.FS << 8 | '.')) {
+            return PrinterCommands.FS << 8 | '&';
+        }
+        return key;
+    }
+}
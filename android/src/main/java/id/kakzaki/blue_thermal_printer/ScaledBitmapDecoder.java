@@ -0,0 +1,201 @@
+package id.kakzaki.blue_thermal_printer;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodes images straight to the printer's dot width.
+ *
+ * The bounds are read first, {@link BitmapFactory.Options#inSampleSize} drops the
+ * image to less than twice the target width while decoding, and a box filter on
+ * pixel rows brings it to exactly {@code targetWidth}. Opaque images are decoded
+ * as RGB_565, so peak memory follows the printed size instead of the camera's.
+ * Images that already fit are returned as decoded; nothing is scaled up.
+ *
+ * {@link #openFile} and {@link #openByteArray} hand images that are still very
+ * tall at that width to {@link RegionRasterSource}, which decodes them in strips.
+ * Images that will be turned a quarter are scaled so their height fits instead.
+ */
+public class ScaledBitmapDecoder {
+    private static final String TAG = "ScaledBitmapDecoder";
+
+    // Images taller than this many rows at the target width are decoded strip by strip
+    public static final int STRIP_DECODE_MIN_ROWS = 2048;
+
+    public static RasterSource openFile(String path, int targetWidth, String dither, int rotation) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        targetWidth = widthBeforeRotation(options, targetWidth, rotation);
+        if (isTall(options, targetWidth)) {
+            try {
+                BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(path, false);
+                if (decoder != null) {
+                    return new RegionRasterSource(decoder, targetWidth, dither);
+                }
+            } catch (IOException e) {
+                Log.d(TAG, "No region decoding for " + options.outMimeType + ", decoding in one piece");
+            }
+        }
+        prepare(options, targetWidth);
+        Bitmap bmp = scaleToWidth(BitmapFactory.decodeFile(path, options), targetWidth);
+        return bmp != null ? ParallelRasterSource.of(bmp, dither) : null;
+    }
+
+    public static RasterSource openByteArray(byte[] bytes, int targetWidth, String dither, int rotation) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        targetWidth = widthBeforeRotation(options, targetWidth, rotation);
+        if (isTall(options, targetWidth)) {
+            try {
+                BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(bytes, 0, bytes.length, false);
+                if (decoder != null) {
+                    return new RegionRasterSource(decoder, targetWidth, dither);
+                }
+            } catch (IOException e) {
+                Log.d(TAG, "No region decoding for " + options.outMimeType + ", decoding in one piece");
+            }
+        }
+        prepare(options, targetWidth);
+        Bitmap bmp = scaleToWidth(BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options), targetWidth);
+        return bmp != null ? ParallelRasterSource.of(bmp, dither) : null;
+    }
+
+    public static Bitmap decodeByteArray(byte[] bytes, int targetWidth) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        prepare(options, targetWidth);
+        return scaleToWidth(BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options), targetWidth);
+    }
+
+    /**
+     * Largest power of two that keeps the decoded width at or above {@code targetWidth}.
+     */
+    static int sampleSizeFor(int width, int targetWidth) {
+        int sample = 1;
+        while (targetWidth > 0 && width / (sample * 2) >= targetWidth) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /**
+     * Width to decode at so the image is at most {@code targetWidth} wide once turned by {@code rotation}.
+     */
+    private static int widthBeforeRotation(BitmapFactory.Options bounds, int targetWidth, int rotation) {
+        if (rotation != 90 && rotation != 270) {
+            return targetWidth;
+        }
+        if (targetWidth <= 0 || bounds.outHeight <= targetWidth) {
+            return bounds.outWidth;
+        }
+        return Math.max(1, (int) ((long) bounds.outWidth * targetWidth / bounds.outHeight));
+    }
+
+    private static boolean isTall(BitmapFactory.Options bounds, int targetWidth) {
+        long rows = bounds.outHeight;
+        if (targetWidth > 0 && bounds.outWidth > targetWidth) {
+            rows = rows * targetWidth / bounds.outWidth;
+        }
+        return rows > STRIP_DECODE_MIN_ROWS;
+    }
+
+    private static void prepare(BitmapFactory.Options options, int targetWidth) {
+        options.inSampleSize = sampleSizeFor(options.outWidth, targetWidth);
+        // A hint only: images with an alpha channel still come back as ARGB_8888
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inJustDecodeBounds = false;
+    }
+
+    /**
+     * Box filters {@code src} down to {@code targetWidth} and recycles it. Every output
+     * pixel averages the source block it covers, channel by channel; the height keeps
+     * the aspect ratio.
+     */
+    public static Bitmap scaleToWidth(Bitmap src, int targetWidth) {
+        if (src == null || targetWidth <= 0 || src.getWidth() <= targetWidth) {
+            return src;
+        }
+
+        int srcWidth = src.getWidth();
+        int srcHeight = src.getHeight();
+        int targetHeight = Math.max(1, (int) ((long) srcHeight * targetWidth / srcWidth));
+        Bitmap dst = Bitmap.createBitmap(targetWidth, targetHeight,
+                src.hasAlpha() ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565);
+
+        int[] columnStart = boxEdges(srcWidth, targetWidth);
+        int[] rowStart = boxEdges(srcHeight, targetHeight);
+        int[] srcRow = new int[srcWidth];
+        int[] dstRow = new int[targetWidth];
+        int[] sums = new int[targetWidth * 4];
+
+        for (int y = 0; y < targetHeight; y++) {
+            Arrays.fill(sums, 0);
+            for (int sy = rowStart[y]; sy < rowStart[y + 1]; sy++) {
+                src.getPixels(srcRow, 0, srcWidth, 0, sy, srcWidth, 1);
+                accumulate(srcRow, columnStart, sums);
+            }
+            average(sums, columnStart, rowStart[y + 1] - rowStart[y], dstRow);
+            dst.setPixels(dstRow, 0, targetWidth, 0, y, targetWidth, 1);
+        }
+
+        src.recycle();
+        return dst;
+    }
+
+    /**
+     * Adds the channels of every pixel of {@code row} to the sums of the box it falls in,
+     * four ints (a, r, g, b) per box.
+     */
+    static void accumulate(int[] row, int[] columnStart, int[] sums) {
+        for (int x = 0, s = 0, boxes = columnStart.length - 1; x < boxes; x++, s += 4) {
+            for (int sx = columnStart[x]; sx < columnStart[x + 1]; sx++) {
+                int color = row[sx];
+                sums[s] += color >>> 24;
+                sums[s + 1] += (color >> 16) & 0xff;
+                sums[s + 2] += (color >> 8) & 0xff;
+                sums[s + 3] += color & 0xff;
+            }
+        }
+    }
+
+    /**
+     * Turns the sums of {@code rows} accumulated rows back into ARGB pixels.
+     */
+    static void average(int[] sums, int[] columnStart, int rows, int[] dstRow) {
+        for (int x = 0, s = 0, boxes = columnStart.length - 1; x < boxes; x++, s += 4) {
+            int area = rows * (columnStart[x + 1] - columnStart[x]);
+            dstRow[x] = (sums[s] / area) << 24
+                    | (sums[s + 1] / area) << 16
+                    | (sums[s + 2] / area) << 8
+                    | sums[s + 3] / area;
+        }
+    }
+
+    /**
+     * Splits {@code length} source pixels into {@code count} boxes; box i is [edges[i], edges[i + 1]).
+     */
+    static int[] boxEdges(int length, int count) {
+        int[] edges = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            edges[i] = (int) ((long) i * length / count);
+        }
+        return edges;
+    }
+}
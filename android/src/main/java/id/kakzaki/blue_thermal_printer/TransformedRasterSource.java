@@ -0,0 +1,181 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * Rotates and mirrors another source after it has been packed to 1bpp.
+ *
+ * Rotations pack the wrapped source once, then turn it with bit operations
+ * only: quarter turns are a transpose done on 8x8 bit blocks (one long each)
+ * plus a flip, half turns reverse rows and bytes. Besides the two packed
+ * buffers only a one row scratch buffer for vertical flips is allocated, about
+ * 1/32 of the ARGB bitmap a rotation in Dart costs.
+ * A mirror alone needs no other rows, so it is applied to each band as the
+ * wrapped source packs it, and a strip decoding source keeps its memory bound.
+ *
+ * Rotation is clockwise; mirroring flips left and right after rotating.
+ */
+public class TransformedRasterSource implements RasterSource {
+    private static final byte[] REVERSED_BITS = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            REVERSED_BITS[i] = (byte) (Integer.reverse(i) >>> 24);
+        }
+    }
+
+    private final RasterSource source;
+    // the turned image, null when rows are mirrored as they are packed
+    private final byte[] packed;
+    private final boolean mirrorRows;
+    private final int width;
+    private final int height;
+
+    public static boolean isValidRotation(int rotation) {
+        return rotation == 0 || rotation == 90 || rotation == 180 || rotation == 270;
+    }
+
+    public TransformedRasterSource(RasterSource source, int rotation, boolean mirror) {
+        this.source = source;
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        if (rotation != 90 && rotation != 180 && rotation != 270) {
+            packed = null;
+            mirrorRows = mirror;
+            width = sourceWidth;
+            height = sourceHeight;
+            return;
+        }
+        mirrorRows = false;
+        byte[] original = new byte[RasterEncoder.bytesPerRow(sourceWidth) * sourceHeight];
+        source.packRows(0, sourceHeight, original, 0);
+
+        switch (rotation) {
+            case 90:
+                packed = transpose(original, sourceWidth, sourceHeight);
+                width = sourceHeight;
+                height = sourceWidth;
+                // a clockwise turn is a transpose with the columns reversed
+                mirror = !mirror;
+                break;
+            case 180:
+                packed = original;
+                width = sourceWidth;
+                height = sourceHeight;
+                flipVertical(packed, width, height);
+                mirror = !mirror;
+                break;
+            default:
+                // 270
+                packed = transpose(original, sourceWidth, sourceHeight);
+                width = sourceHeight;
+                height = sourceWidth;
+                flipVertical(packed, width, height);
+                break;
+        }
+        if (mirror) {
+            flipHorizontal(packed, 0, width, height);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+        if (packed == null) {
+            source.packRows(startRow, rows, dst, dstOffset);
+            if (mirrorRows) {
+                flipHorizontal(dst, dstOffset, width, rows);
+            }
+            return;
+        }
+        int widthBytes = RasterEncoder.bytesPerRow(width);
+        System.arraycopy(packed, startRow * widthBytes, dst, dstOffset, rows * widthBytes);
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+
+    /**
+     * Swaps rows and columns: row r of the result is column r of {@code src}.
+     */
+    static byte[] transpose(byte[] src, int width, int height) {
+        int srcBytes = RasterEncoder.bytesPerRow(width);
+        int dstBytes = RasterEncoder.bytesPerRow(height);
+        byte[] dst = new byte[dstBytes * width];
+
+        for (int blockRow = 0; blockRow < dstBytes; blockRow++) {
+            int top = blockRow * 8;
+            int rows = Math.min(8, height - top);
+            for (int column = 0; column < srcBytes; column++) {
+                // 8 rows of one byte column, first row in the top byte
+                long block = 0;
+                for (int i = 0, in = top * srcBytes + column; i < 8; i++, in += srcBytes) {
+                    block = (block << 8) | (i < rows ? src[in] & 0xff : 0);
+                }
+                if (block == 0) {
+                    continue;
+                }
+                block = transpose8x8(block);
+
+                int left = column * 8;
+                int columns = Math.min(8, width - left);
+                for (int i = 0, out = left * dstBytes + blockRow; i < columns; i++, out += dstBytes) {
+                    dst[out] = (byte) (block >>> (56 - i * 8));
+                }
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Transposes an 8x8 bit matrix held row by row in a long, most significant byte and bit first.
+     */
+    static long transpose8x8(long x) {
+        x = (x & 0xAA55AA55AA55AA55L) | ((x & 0x00AA00AA00AA00AAL) << 7) | ((x >>> 7) & 0x00AA00AA00AA00AAL);
+        x = (x & 0xCCCC3333CCCC3333L) | ((x & 0x0000CCCC0000CCCCL) << 14) | ((x >>> 14) & 0x0000CCCC0000CCCCL);
+        x = (x & 0xF0F0F0F00F0F0F0FL) | ((x & 0x00000000F0F0F0F0L) << 28) | ((x >>> 28) & 0x00000000F0F0F0F0L);
+        return x;
+    }
+
+    static void flipVertical(byte[] packed, int width, int height) {
+        int widthBytes = RasterEncoder.bytesPerRow(width);
+        byte[] row = new byte[widthBytes];
+        for (int top = 0, bottom = height - 1; top < bottom; top++, bottom--) {
+            System.arraycopy(packed, top * widthBytes, row, 0, widthBytes);
+            System.arraycopy(packed, bottom * widthBytes, packed, top * widthBytes, widthBytes);
+            System.arraycopy(row, 0, packed, bottom * widthBytes, widthBytes);
+        }
+    }
+
+    /**
+     * Mirrors {@code rows} rows starting at {@code offset}. Reversing the bytes moves the padding
+     * bits of the last byte to the front, so rows that do not end on a byte are shifted back left.
+     */
+    static void flipHorizontal(byte[] packed, int offset, int width, int rows) {
+        int widthBytes = RasterEncoder.bytesPerRow(width);
+        int shift = widthBytes * 8 - width;
+        for (int row = 0, start = offset; row < rows; row++, start += widthBytes) {
+            for (int i = start, j = start + widthBytes - 1; i <= j; i++, j--) {
+                byte left = packed[i];
+                packed[i] = REVERSED_BITS[packed[j] & 0xff];
+                packed[j] = REVERSED_BITS[left & 0xff];
+            }
+            if (shift != 0) {
+                int end = start + widthBytes - 1;
+                for (int i = start; i < end; i++) {
+                    packed[i] = (byte) ((packed[i] << shift) | ((packed[i + 1] & 0xff) >>> (8 - shift)));
+                }
+                packed[end] = (byte) (packed[end] << shift);
+            }
+        }
+    }
+}
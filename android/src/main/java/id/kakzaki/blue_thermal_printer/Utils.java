@@ -1,7 +1,6 @@
 package id.kakzaki.blue_thermal_printer;
 
 import android.graphics.Bitmap;
-import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,73 +17,12 @@ public class Utils {
             "0100", "0101", "0110", "0111", "1000", "1001", "1010", "1011",
             "1100", "1101", "1110", "1111" };
 
+    /**
+     * Converts a bitmap into a GS v 0 raster command.
+     * Kept for compatibility, the work is done by {@link RasterEncoder}.
+     */
     public static byte[] decodeBitmap(Bitmap bmp){
-        int bmpWidth = bmp.getWidth();
-        int bmpHeight = bmp.getHeight();
-
-        List<String> list = new ArrayList<String>(); //binaryString list
-        StringBuffer sb;
-
-
-        int bitLen = bmpWidth / 8;
-        int zeroCount = bmpWidth % 8;
-
-        String zeroStr = "";
-        if (zeroCount > 0) {
-            bitLen = bmpWidth / 8 + 1;
-            for (int i = 0; i < (8 - zeroCount); i++) {
-                zeroStr = zeroStr + "0";
-            }
-        }
-
-        for (int i = 0; i < bmpHeight; i++) {
-            sb = new StringBuffer();
-            for (int j = 0; j < bmpWidth; j++) {
-                int color = bmp.getPixel(j, i);
-
-                int r = (color >> 16) & 0xff;
-                int g = (color >> 8) & 0xff;
-                int b = color & 0xff;
-
-                // if color close to white，bit='0', else bit='1'
-                if (r > 160 && g > 160 && b > 160)
-                    sb.append("0");
-                else
-                    sb.append("1");
-            }
-            if (zeroCount > 0) {
-                sb.append(zeroStr);
-            }
-            list.add(sb.toString());
-        }
-
-        List<String> bmpHexList = binaryListToHexStringList(list);
-        String commandHexString = "1D763000";
-        String widthHexString = Integer
-                .toHexString(bmpWidth % 8 == 0 ? bmpWidth / 8
-                        : (bmpWidth / 8 + 1));
-        if (widthHexString.length() > 10) {
-            Log.e("decodeBitmap error", " width is too large");
-            return null;
-        } else if (widthHexString.length() == 1) {
-            widthHexString = "0" + widthHexString;
-        }
-        widthHexString = widthHexString + "00";
-
-        String heightHexString = Integer.toHexString(bmpHeight);
-        if (heightHexString.length() > 10) {
-            Log.e("decodeBitmap error", " height is too large");
-            return null;
-        } else if (heightHexString.length() == 1) {
-            heightHexString = "0" + heightHexString;
-        }
-        heightHexString = heightHexString + "00";
-
-        List<String> commandList = new ArrayList<String>();
-        commandList.add(commandHexString+widthHexString+heightHexString);
-        commandList.addAll(bmpHexList);
-
-        return hexList2Byte(commandList);
+        return RasterEncoder.encode(bmp);
     }
 
     public static List<String> binaryListToHexStringList(List<String> list) {
@@ -0,0 +1,165 @@
+package id.kakzaki.blue_thermal_printer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects small writes into frame sized packets before they reach the socket.
+ *
+ * A printCustom line is four writes of a few bytes each; sent one by one every
+ * write is a radio packet of its own. Here they are copied into one reusable
+ * buffer as large as an RFCOMM frame, which goes out when it is full, when
+ * nothing was written for {@link #IDLE_FLUSH_MS}, or on {@link #flush()} at
+ * the end of a job. Writes of a frame or more pass straight through after
+ * whatever is buffered, so order is always kept.
+ *
+ * An error of an idle flush is kept and thrown by the next write or flush.
+ * The time spent in the socket is summed up in {@link #linkNanos()}.
+ */
+public class WriteCombiner extends OutputStream {
+    // RFCOMM's usual maximum frame size, used when the socket does not report one
+    public static final int DEFAULT_FRAME_BYTES = 990;
+    static final int IDLE_FLUSH_MS = 5;
+
+    private static final ScheduledExecutorService IDLE_FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "WriteCombiner-idle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int count;
+    private ScheduledFuture<?> idleFlush;
+    private IOException idleFlushError;
+    private boolean closed;
+    private long linkNanos;
+
+    public WriteCombiner(OutputStream out, int frameBytes) {
+        this.out = out;
+        this.buffer = new byte[frameBytes > 0 ? frameBytes : DEFAULT_FRAME_BYTES];
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        checkOpen();
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+        scheduleIdleFlush();
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        checkOpen();
+        if (length >= buffer.length) {
+            flushBuffer();
+            long start = System.nanoTime();
+            out.write(bytes, offset, length);
+            linkNanos += System.nanoTime() - start;
+            return;
+        }
+        if (length > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+        if (count == buffer.length) {
+            flushBuffer();
+        } else {
+            scheduleIdleFlush();
+        }
+    }
+
+    /**
+     * Sends the buffered bytes and flushes the socket stream.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        checkOpen();
+        flushBuffer();
+        flushSocket();
+    }
+
+    /**
+     * Total time writes and flushes have spent blocked in the socket.
+     */
+    public synchronized long linkNanos() {
+        return linkNanos;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (idleFlushError == null) {
+                flushBuffer();
+                out.flush();
+            }
+        } finally {
+            closed = true;
+            cancelIdleFlush();
+            out.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        cancelIdleFlush();
+        if (count > 0) {
+            int length = count;
+            // dropped even when the write fails, a broken link does not get them back
+            count = 0;
+            long start = System.nanoTime();
+            out.write(buffer, 0, length);
+            linkNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void scheduleIdleFlush() {
+        if (idleFlush == null && count > 0) {
+            idleFlush = IDLE_FLUSHER.schedule(this::idleFlush, IDLE_FLUSH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelIdleFlush() {
+        if (idleFlush != null) {
+            idleFlush.cancel(false);
+            idleFlush = null;
+        }
+    }
+
+    private synchronized void idleFlush() {
+        idleFlush = null;
+        if (closed || idleFlushError != null) {
+            return;
+        }
+        try {
+            flushBuffer();
+            flushSocket();
+        } catch (IOException e) {
+            idleFlushError = e;
+        }
+    }
+
+    private void flushSocket() throws IOException {
+        long start = System.nanoTime();
+        out.flush();
+        linkNanos += System.nanoTime() - start;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (idleFlushError != null) {
+            throw idleFlushError;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package id.kakzaki.blue_thermal_printer;
+
+/**
+ * How a payload is sent in chunks: what is checked before every chunk and
+ * whether a failed chunk is tried again.
+ *
+ * The write paths of the plugin (fast, enhanced, with recovery, GP1324D...)
+ * only differ in these points, so they are policies of one chunked writer
+ * rather than copies of the same loop.
+ */
+public final class WritePolicy {
+    public interface Check {
+        boolean ok() throws InterruptedException;
+    }
+
+    private static final Check NEVER = () -> false;
+
+    // used in log messages
+    public final String name;
+    // before every chunk; false ends the write
+    public final Check ready;
+    // tries per chunk, a chunk that succeeds resets the count
+    public final int attempts;
+    // before trying a failed chunk again; false ends the write
+    public final Check recover;
+
+    public WritePolicy(String name, Check ready) {
+        this(name, ready, 1, NEVER);
+    }
+
+    public WritePolicy(String name, Check ready, int attempts, Check recover) {
+        this.name = name;
+        this.ready = ready;
+        this.attempts = Math.max(1, attempts);
+        this.recover = recover;
+    }
+}
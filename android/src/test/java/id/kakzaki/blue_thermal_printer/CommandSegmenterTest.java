@@ -0,0 +1,73 @@
+package id.kakzaki.blue_thermal_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CommandSegmenterTest {
+    // GS v 0, 10 bytes per row, 5 rows: header up to 8, rows end at 18, 28 ... 58
+    private static final byte[] RASTER = raster(10, 5);
+
+    @Test
+    public void chunkEndsBeforeACommandThatDoesNotFit() {
+        byte[] bytes = {'A', 'B', PrinterCommands.ESC, '!', 0, 'C'};
+        CommandSegmenter segments = new CommandSegmenter(bytes, 0, bytes.length);
+        assertEquals(2, segments.next(0, 4));
+        assertTrue(segments.endsCommand(2));
+        assertEquals(6, segments.next(2, 4));
+        assertTrue(segments.endsCommand(6));
+    }
+
+    @Test
+    public void rasterIsCutBetweenRows() {
+        CommandSegmenter segments = new CommandSegmenter(RASTER, 0, RASTER.length);
+        assertEquals(28, segments.next(0, 35));
+        assertFalse(segments.endsCommand(28));
+        assertEquals(58, segments.next(28, 35));
+        assertTrue(segments.endsCommand(58));
+    }
+
+    @Test
+    public void dataWithoutRowsIsCutAtTheLimit() {
+        // GS ( k pL=20 pH=0: a QR function and its 20 bytes of data
+        byte[] bytes = new byte[25];
+        bytes[0] = PrinterCommands.GS;
+        bytes[1] = '(';
+        bytes[2] = 'k';
+        bytes[3] = 20;
+        CommandSegmenter segments = new CommandSegmenter(bytes, 0, bytes.length);
+        assertEquals(10, segments.next(0, 10));
+        assertFalse(segments.endsCommand(10));
+        assertEquals(20, segments.next(10, 10));
+        assertEquals(25, segments.next(20, 10));
+        assertTrue(segments.endsCommand(25));
+    }
+
+    @Test
+    public void askingAgainForTheSameStartCutsForTheNewSize() {
+        CommandSegmenter segments = new CommandSegmenter(RASTER, 0, RASTER.length);
+        assertEquals(28, segments.next(0, 35));
+        assertEquals(18, segments.next(0, 18));
+        assertEquals(48, segments.next(18, 30));
+    }
+
+    @Test
+    public void offsetPayloadIsWalkedFromItsStart() {
+        byte[] bytes = new byte[3 + RASTER.length];
+        System.arraycopy(RASTER, 0, bytes, 3, RASTER.length);
+        CommandSegmenter segments = new CommandSegmenter(bytes, 3, RASTER.length);
+        assertEquals(31, segments.next(3, 35));
+    }
+
+    static byte[] raster(int rowBytes, int rows) {
+        byte[] bytes = new byte[RasterEncoder.RASTER_HEADER_SIZE + rowBytes * rows];
+        RasterEncoder.writeHeader(bytes, 0, rowBytes, rows);
+        // row data full of bytes that would read as commands
+        for (int i = RasterEncoder.RASTER_HEADER_SIZE; i < bytes.length; i++) {
+            bytes[i] = PrinterCommands.ESC;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,68 @@
+package id.kakzaki.blue_thermal_printer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class EscPosScannerTest {
+    private static final byte[] TWO_LINES = {'A', PrinterCommands.LF, 'B', PrinterCommands.LF};
+
+    @Test
+    public void lineFeedsUseTheLineSpacing() {
+        assertEquals(2 * EscPosScanner.DEFAULT_LINE_DOTS, scan(TWO_LINES));
+    }
+
+    @Test
+    public void graphicsCommandOtherThanPrintKeepsTheFollowingBytes() {
+        // GS ( L pL=2 pH=0 m=0x30 fn=0x32: the print buffered graphics command, nothing after the header
+        byte[] bytes = concat(new byte[] {PrinterCommands.GS, '(', 'L', 2, 0, 0x30, 0x32}, TWO_LINES);
+        assertEquals(2 * EscPosScanner.DEFAULT_LINE_DOTS, scan(bytes));
+    }
+
+    @Test
+    public void extendedGraphicsCommandOtherThanPrintKeepsTheFollowingBytes() {
+        // GS 8 L p1..p4=2 m=0x30 fn=0x32
+        byte[] bytes = concat(new byte[] {PrinterCommands.GS, '8', 'L', 2, 0, 0, 0, 0x30, 0x32}, TWO_LINES);
+        assertEquals(2 * EscPosScanner.DEFAULT_LINE_DOTS, scan(bytes));
+    }
+
+    @Test
+    public void graphicsCommandDataIsSkipped() {
+        // GS ( L pL=4: m fn and two bytes of data that would otherwise read as line feeds
+        byte[] bytes = concat(new byte[] {PrinterCommands.GS, '(', 'L', 4, 0, 0x30, 0x43,
+                PrinterCommands.LF, PrinterCommands.LF}, TWO_LINES);
+        assertEquals(2 * EscPosScanner.DEFAULT_LINE_DOTS, scan(bytes));
+    }
+
+    @Test
+    public void graphicsCommandSplitOverWritesIsPickedUp() {
+        byte[] bytes = concat(new byte[] {PrinterCommands.GS, '(', 'L', 2, 0, 0x30, 0x32}, TWO_LINES);
+        EscPosScanner scanner = new EscPosScanner();
+        long dots = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            dots += scanner.scan(bytes, i, 1);
+        }
+        assertEquals(2 * EscPosScanner.DEFAULT_LINE_DOTS, dots);
+    }
+
+    @Test
+    public void rasterGraphicsCountTheirRows() {
+        // GS ( L fn 112: a=0x30 bx=1 by=1 c=0x31, 8 x 3 dots, one byte per row
+        byte[] bytes = {PrinterCommands.GS, '(', 'L', 13, 0, 0x30, 0x70, 0x30, 1, 1, 0x31, 8, 0, 3, 0,
+                PrinterCommands.LF, PrinterCommands.LF, PrinterCommands.LF};
+        assertEquals(3, scan(bytes));
+    }
+
+    private static long scan(byte[] bytes) {
+        return new EscPosScanner().scan(bytes, 0, bytes.length);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(a, 0, a.length);
+        out.write(b, 0, b.length);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package id.kakzaki.blue_thermal_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PacedOutputStreamTest {
+    private static final int ROW_BYTES = 70;
+    private static final int ROWS = 100;
+
+    @Test
+    public void largeRasterIsCutBetweenRows() throws IOException {
+        byte[] bytes = CommandSegmenterTest.raster(ROW_BYTES, ROWS);
+        List<Integer> cuts = new ArrayList<>();
+        pacer(cuts).write(bytes, 0, bytes.length);
+        assertOnRows(cuts, 0, bytes.length);
+    }
+
+    @Test
+    public void rasterBegunByAnEarlierWriteIsCutBetweenRows() throws IOException {
+        byte[] bytes = CommandSegmenterTest.raster(ROW_BYTES, ROWS);
+        List<Integer> cuts = new ArrayList<>();
+        PacedOutputStream pacer = pacer(cuts);
+        // the header and half a row, then the rest
+        int first = RasterEncoder.RASTER_HEADER_SIZE + ROW_BYTES / 2;
+        pacer.write(bytes, 0, first);
+        pacer.write(bytes, first, bytes.length - first);
+        assertOnRows(cuts, first, bytes.length);
+    }
+
+    @Test
+    public void headerBegunByAnEarlierWriteIsFinishedFirst() throws IOException {
+        byte[] bytes = CommandSegmenterTest.raster(ROW_BYTES, ROWS);
+        List<Integer> cuts = new ArrayList<>();
+        PacedOutputStream pacer = pacer(cuts);
+        pacer.write(bytes, 0, 3);
+        pacer.write(bytes, 3, bytes.length - 3);
+        assertEquals(3, (int) cuts.get(0));
+        assertEquals(RasterEncoder.RASTER_HEADER_SIZE, (int) cuts.get(1));
+        assertOnRows(cuts, 3, bytes.length);
+    }
+
+    private static PacedOutputStream pacer(List<Integer> cuts) {
+        PrinterProfile profile = new PrinterProfile();
+        profile.receiveBufferBytes = 1024;
+        profile.printSpeed = PrinterProfile.MAX_PRINT_SPEED;
+        OutputStream recorder = new OutputStream() {
+            private int total;
+
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                total += length;
+                cuts.add(total);
+            }
+        };
+        return new PacedOutputStream(recorder, profile);
+    }
+
+    /**
+     * Every cut but {@code write} (where the caller split) and the end falls on a row end.
+     */
+    private static void assertOnRows(List<Integer> cuts, int write, int end) {
+        assertTrue(cuts.size() > 2);
+        for (int cut : cuts) {
+            if (cut != write && cut != end) {
+                assertEquals(0, (cut - RasterEncoder.RASTER_HEADER_SIZE) % ROW_BYTES);
+            }
+        }
+    }
+}
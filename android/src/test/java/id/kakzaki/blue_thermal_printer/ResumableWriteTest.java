@@ -0,0 +1,99 @@
+package id.kakzaki.blue_thermal_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+public class ResumableWriteTest {
+    private static final byte[] CENTER = {PrinterCommands.ESC, 'a', 1};
+    private static final byte[] RIGHT = {PrinterCommands.ESC, 'a', 2};
+    private static final byte[] BOLD = {PrinterCommands.ESC, 'E', 1};
+    private static final byte[] RESET = {PrinterCommands.ESC, '@'};
+    private static final byte[] TEXT = {'A', 'B'};
+
+    @Test
+    public void restartModeAlwaysStartsOver() {
+        byte[] bytes = concat(CENTER, TEXT);
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_RESTART);
+        job.commit(4);
+        assertFalse(job.resumes());
+        assertEquals(0, job.resumeOffset());
+        assertArrayEquals(new byte[0], job.resumePrefix());
+    }
+
+    @Test
+    public void commitOnABoundaryResumesThere() {
+        byte[] bytes = concat(TEXT, CommandSegmenterTest.raster(10, 5));
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_FROM_OFFSET);
+        job.commit(2);
+        assertTrue(job.resumes());
+        assertEquals(2, job.resumeOffset());
+    }
+
+    @Test
+    public void commitInsideDataResumesFromTheCommandStart() {
+        byte[] bytes = concat(TEXT, CommandSegmenterTest.raster(10, 5));
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_FROM_OFFSET);
+        // after the header and two rows
+        job.commit(2 + RasterEncoder.RASTER_HEADER_SIZE + 20);
+        assertEquals(2, job.resumeOffset());
+        job.commit(bytes.length);
+        assertTrue(job.done());
+        assertEquals(bytes.length, job.resumeOffset());
+    }
+
+    @Test
+    public void offsetModeSendsNoState() {
+        byte[] bytes = concat(concat(CENTER, TEXT), TEXT);
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_FROM_OFFSET);
+        job.commit(5);
+        assertEquals(5, job.resumeOffset());
+        assertArrayEquals(new byte[0], job.resumePrefix());
+    }
+
+    @Test
+    public void stateModeSendsTheLastOfEachModeCommand() {
+        byte[] bytes = concat(concat(concat(CENTER, BOLD), concat(RIGHT, TEXT)), TEXT);
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_WITH_STATE);
+        job.commit(11);
+        assertEquals(11, job.resumeOffset());
+        assertArrayEquals(concat(BOLD, RIGHT), job.resumePrefix());
+    }
+
+    @Test
+    public void lineSpacingCommandsReplaceEachOther() {
+        byte[] bytes = {PrinterCommands.ESC, '3', 40, PrinterCommands.ESC, '2', 'A', 'B'};
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_WITH_STATE);
+        job.commit(6);
+        assertArrayEquals(new byte[] {PrinterCommands.ESC, '2'}, job.resumePrefix());
+    }
+
+    @Test
+    public void resetForgetsEarlierModes() {
+        byte[] bytes = concat(concat(CENTER, RESET), concat(TEXT, TEXT));
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_WITH_STATE);
+        job.commit(7);
+        assertEquals(7, job.resumeOffset());
+        assertArrayEquals(new byte[0], job.resumePrefix());
+    }
+
+    @Test
+    public void nothingToRestoreBeforeTheFirstCommit() {
+        byte[] bytes = concat(CENTER, TEXT);
+        ResumableWrite job = new ResumableWrite(bytes, 0, bytes.length, PrinterProfile.RESUME_WITH_STATE);
+        assertEquals(0, job.resumeOffset());
+        assertArrayEquals(new byte[0], job.resumePrefix());
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(a, 0, a.length);
+        out.write(b, 0, b.length);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,137 @@
+package id.kakzaki.blue_thermal_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TransformedRasterSourceTest {
+    // not a multiple of 8 either way, so padding bits and partial blocks are covered
+    private static final int WIDTH = 13;
+    private static final int HEIGHT = 19;
+
+    @Test
+    public void transposeOf8x8BlockSwapsRowsAndColumns() {
+        // a single dot at row 0 column 1 moves to row 1 column 0
+        assertEquals(0x0080000000000000L, TransformedRasterSource.transpose8x8(0x4000000000000000L));
+        // the diagonal stays
+        long diagonal = 0x8040201008040201L;
+        assertEquals(diagonal, TransformedRasterSource.transpose8x8(diagonal));
+    }
+
+    @Test
+    public void everyRotationAndMirrorMatchesTheDotByDotResult() {
+        boolean[][] dots = randomDots(WIDTH, HEIGHT, 7);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            for (boolean mirror : new boolean[] {false, true}) {
+                TransformedRasterSource turned = new TransformedRasterSource(new DotSource(dots), rotation, mirror);
+                boolean[][] expected = transform(dots, rotation, mirror);
+                assertEquals(expected[0].length, turned.getWidth());
+                assertEquals(expected.length, turned.getHeight());
+                assertArrayEquals(pack(expected), packAll(turned));
+            }
+        }
+    }
+
+    @Test
+    public void mirroredBandsMatchTheWholeImage() {
+        boolean[][] dots = randomDots(WIDTH, HEIGHT, 11);
+        TransformedRasterSource mirrored = new TransformedRasterSource(new DotSource(dots), 0, true);
+        int widthBytes = RasterEncoder.bytesPerRow(WIDTH);
+        byte[] bands = new byte[widthBytes * HEIGHT];
+        for (int y = 0; y < HEIGHT; y += 4) {
+            mirrored.packRows(y, Math.min(4, HEIGHT - y), bands, y * widthBytes);
+        }
+        assertArrayEquals(pack(transform(dots, 0, true)), bands);
+    }
+
+    /**
+     * Clockwise rotation, then a left-right flip, one dot at a time.
+     */
+    private static boolean[][] transform(boolean[][] dots, int rotation, boolean mirror) {
+        int height = dots.length;
+        int width = dots[0].length;
+        boolean turned = rotation == 90 || rotation == 270;
+        boolean[][] out = new boolean[turned ? width : height][turned ? height : width];
+        for (int y = 0; y < out.length; y++) {
+            for (int x = 0; x < out[0].length; x++) {
+                int column = mirror ? out[0].length - 1 - x : x;
+                boolean dot;
+                switch (rotation) {
+                    case 90:
+                        dot = dots[height - 1 - column][y];
+                        break;
+                    case 180:
+                        dot = dots[height - 1 - y][width - 1 - column];
+                        break;
+                    case 270:
+                        dot = dots[column][width - 1 - y];
+                        break;
+                    default:
+                        dot = dots[y][column];
+                        break;
+                }
+                out[y][x] = dot;
+            }
+        }
+        return out;
+    }
+
+    private static boolean[][] randomDots(int width, int height, long seed) {
+        Random random = new Random(seed);
+        boolean[][] dots = new boolean[height][width];
+        for (boolean[] row : dots) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextBoolean();
+            }
+        }
+        return dots;
+    }
+
+    private static byte[] pack(boolean[][] dots) {
+        int widthBytes = RasterEncoder.bytesPerRow(dots[0].length);
+        byte[] packed = new byte[widthBytes * dots.length];
+        for (int y = 0; y < dots.length; y++) {
+            for (int x = 0; x < dots[y].length; x++) {
+                if (dots[y][x]) {
+                    packed[y * widthBytes + x / 8] |= (byte) (0x80 >>> (x % 8));
+                }
+            }
+        }
+        return packed;
+    }
+
+    private static byte[] packAll(RasterSource source) {
+        byte[] packed = new byte[RasterEncoder.bytesPerRow(source.getWidth()) * source.getHeight()];
+        source.packRows(0, source.getHeight(), packed, 0);
+        return packed;
+    }
+
+    private static final class DotSource implements RasterSource {
+        private final boolean[][] dots;
+
+        DotSource(boolean[][] dots) {
+            this.dots = dots;
+        }
+
+        @Override
+        public int getWidth() {
+            return dots[0].length;
+        }
+
+        @Override
+        public int getHeight() {
+            return dots.length;
+        }
+
+        @Override
+        public void packRows(int startRow, int rows, byte[] dst, int dstOffset) {
+            boolean[][] band = new boolean[rows][];
+            System.arraycopy(dots, startRow, band, 0, rows);
+            byte[] packed = pack(band);
+            System.arraycopy(packed, 0, dst, dstOffset, packed.length);
+        }
+    }
+}
@@ -84,6 +84,15 @@ class BlueThermalPrinter {
   Future<dynamic> writeBytesNoFeed(Uint8List message) =>
       _channel.invokeMethod('writeBytesNoFeed', {'message': message});
 
+  /// queueBytes(Uint8List message) - Queue bytes on the connection's print queue and return the job id at once
+  /// Fails with 'queue_full' when too many jobs are waiting, 'queue_closed' once the connection is going away
+  /// The set...() methods queue too while connected, so jobs already waiting keep the settings they were sent with
+  Future<dynamic> queueBytes(Uint8List message) =>
+      _channel.invokeMethod('queueBytes', {'message': message});
+
+  /// getQueueStatus() - State of the print queue (depth, capacity, activeJob, lastCompletedJob, failedJobs, lastError)
+  Future<dynamic> getQueueStatus() => _channel.invokeMethod('getQueueStatus');
+
   ///printCustom(String message, int size, int align,{String? charset})
   Future<dynamic> printCustom(String message, int size, int align, {String? charset}) =>
       _channel.invokeMethod('printCustom', {'message': message, 'size': size, 'align': align, 'charset': charset});
@@ -100,11 +109,121 @@ class BlueThermalPrinter {
   ///drawerPin5()
   Future<dynamic> drawerPin5() => _channel.invokeMethod('drawerPin5');
 
-  ///printImage(String pathImage)
-  Future<dynamic> printImage(String pathImage) => _channel.invokeMethod('printImage', {'pathImage': pathImage});
-
-  ///printImageBytes(Uint8List bytes)
-  Future<dynamic> printImageBytes(Uint8List bytes) => _channel.invokeMethod('printImageBytes', {'bytes': bytes});
+  ///printImage(String pathImage, {int rotation, bool mirror})
+  ///rotation: 0, 90, 180 or 270 degrees clockwise; mirror flips left and right after rotating
+  Future<dynamic> printImage(String pathImage, {int rotation = 0, bool mirror = false}) =>
+      _channel.invokeMethod('printImage', {'pathImage': pathImage, 'rotation': rotation, 'mirror': mirror});
+
+  ///printImageBytes(Uint8List bytes, {int rotation, bool mirror})
+  ///rotation: 0, 90, 180 or 270 degrees clockwise; mirror flips left and right after rotating
+  Future<dynamic> printImageBytes(Uint8List bytes, {int rotation = 0, bool mirror = false}) =>
+      _channel.invokeMethod('printImageBytes', {'bytes': bytes, 'rotation': rotation, 'mirror': mirror});
+
+  ///printGrayscale(Uint8List pixels, int width, int height, {int align})
+  ///pixels: one byte per pixel, 0 black to 255 white, row after row; dithered with setRasterDither()
+  Future<dynamic> printGrayscale(Uint8List pixels, int width, int height, {int align = 1}) => _channel
+      .invokeMethod('printGrayscale', {'pixels': pixels, 'width': width, 'height': height, 'align': align});
+
+  ///printPackedRaster(Uint8List pixels, int width, int height, {int align})
+  ///pixels: 1bpp rows, most significant bit first, (width + 7) ~/ 8 bytes per row, 1 = black
+  Future<dynamic> printPackedRaster(Uint8List pixels, int width, int height, {int align = 1}) => _channel
+      .invokeMethod('printPackedRaster', {'pixels': pixels, 'width': width, 'height': height, 'align': align});
+
+  /// setRasterBandHeight(int rows) - Rows per GS v 0 band used when streaming images
+  /// Usage: Lower it for printers with small receive buffers (default 64)
+  Future<dynamic> setRasterBandHeight(int rows) => _channel.invokeMethod('setRasterBandHeight', {'rows': rows});
+
+  /// setRasterOptimization(bool enabled) - Strip white space from images before sending (default on)
+  /// Blank top/bottom rows are cropped, blank rows inside become paper feeds and blank columns are trimmed
+  Future<dynamic> setRasterOptimization(bool enabled) =>
+      _channel.invokeMethod('setRasterOptimization', {'enabled': enabled});
+
+  /// setRasterDither(String mode) - How printImage/printImageBytes turn gray into black dots
+  /// mode: 'threshold' (default), 'floyd-steinberg', 'atkinson' or 'ordered'; use a dithering mode for photos
+  Future<dynamic> setRasterDither(String mode) => _channel.invokeMethod('setRasterDither', {'mode': mode});
+
+  /// clearImageCache() - Drop every encoded image kept by printImage/printImageBytes and the glyphs kept by printText
+  Future<dynamic> clearImageCache() => _channel.invokeMethod('clearImageCache');
+
+  /// getImageCacheStats() - Encoded image cache counters
+  /// Keys: hits, misses, entries, sizeBytes, maxBytes
+  Future<Map<dynamic, dynamic>?> getImageCacheStats() => _channel.invokeMethod('getImageCacheStats');
+
+  /// getLastJobMetrics() - Bytes and timings of the last image/QR job
+  /// Keys: job, mode, cacheHit, rawBytes, sentBytes, bytesSaved, encodeMs, writeMs, totalMs, timeSavedMs
+  Future<Map<dynamic, dynamic>?> getLastJobMetrics() => _channel.invokeMethod('getLastJobMetrics');
+
+  /// registerLogo(String key, Uint8List bytes, {String storage = 'nv'}) - Store a logo in the printer
+  /// key: two printable ASCII characters (any name for storage 'legacy')
+  /// storage: 'nv' (GS ( L, kept after power off), 'download' (until power off) or 'legacy' (FS q)
+  /// Returns true when the logo was uploaded, false when this printer already had it
+  Future<dynamic> registerLogo(String key, Uint8List bytes, {String storage = 'nv'}) =>
+      _channel.invokeMethod('registerLogo', {'key': key, 'bytes': bytes, 'storage': storage});
+
+  /// printLogo(String key, {int align = 1}) - Print a logo stored with registerLogo()
+  Future<dynamic> printLogo(String key, {int align = 1}) =>
+      _channel.invokeMethod('printLogo', {'key': key, 'align': align});
+
+  /// printText(String text, {int size, int align, bool bold}) - Print text the printer font cannot show (Arabic, Thai, emoji...)
+  /// Rendered by Android with glyphs cached natively; size in dots, align: 0 left, 1 center, 2 right
+  Future<dynamic> printText(String text, {int size = 24, int align = 0, bool bold = false}) =>
+      _channel.invokeMethod('printText', {'text': text, 'size': size, 'align': align, 'bold': bold});
+
+  /// getGlyphCacheStats() - Counters of the glyph cache used by printText (hits, misses, entries, sizeBytes, maxBytes)
+  Future<dynamic> getGlyphCacheStats() => _channel.invokeMethod('getGlyphCacheStats');
+
+  /// printCanvas(List<Map<String, dynamic>> elements, {int height}) - Compose a receipt natively and print it as one raster
+  /// The canvas is as wide as setPrinterWidth(); every element has 'type', 'x' and 'y' (dots):
+  /// {'type': 'raster', 'data': Uint8List, 'width', 'height'} packed 1bpp rows, e.g. pre-rendered glyphs
+  /// {'type': 'logo', 'key'} a logo registered with registerLogo()
+  /// {'type': 'image', 'bytes', 'width'} an encoded image, scaled down to 'width' dots
+  /// {'type': 'qr', 'text', 'size'} / {'type': 'barcode', 'data', 'barcodeType', 'width' (module), 'height'}
+  /// {'type': 'rect', 'width', 'height'} a filled rectangle, e.g. a separator line
+  /// {'type': 'text', 'text', 'size', 'bold', 'align'} text rendered like printText(), across the full width
+  Future<dynamic> printCanvas(List<Map<String, dynamic>> elements, {int height = 0}) =>
+      _channel.invokeMethod('printCanvas', {'elements': elements, 'height': height});
+
+  /// forgetLogos() - Forget which logos the connected printer holds, e.g. after its memory was cleared
+  Future<dynamic> forgetLogos() => _channel.invokeMethod('forgetLogos');
+
+  /// setPrinterWidth(int width) - Dot width of the connected printer's head, remembered per printer
+  /// width: 384 for 58 mm, 576 (default) for 80 mm; wider images are scaled down while decoding
+  Future<dynamic> setPrinterWidth(int width) => _channel.invokeMethod('setPrinterWidth', {'width': width});
+
+  /// setPrintSpeed(int speed, {int? bufferBytes}) - Paper speed of the connected printer in mm/s, remembered per printer
+  /// Writes are paced to what the printer can print: 60 (default) suits most Bluetooth printers;
+  /// bufferBytes is the printer's receive buffer, 4096 by default
+  Future<dynamic> setPrintSpeed(int speed, {int? bufferBytes}) =>
+      _channel.invokeMethod('setPrintSpeed', {'speed': speed, 'bufferBytes': bufferBytes});
+
+  /// setQrMode(String mode) - How printQRcode() talks to the connected printer, remembered per printer
+  /// mode: 'raster' (default, zxing image) or 'native' (GS ( k, the printer draws the code from the text)
+  Future<dynamic> setQrMode(String mode) => _channel.invokeMethod('setQrMode', {'mode': mode});
+
+  /// setResumeMode(String mode) - Where a failed writeBytes retries from on the connected printer, remembered per printer
+  /// mode: 'state' (default, goes on from the last command the printer confirmed, re-sending alignment and font),
+  /// 'offset' (goes on from the last command confirmed) or 'restart' (sends everything again)
+  /// Progress is confirmed with DLE EOT; printers that don't answer it restart. Retries only happen within the
+  /// call, on the same connection: after a disconnect the job is dropped and has to be printed again
+  Future<dynamic> setResumeMode(String mode) => _channel.invokeMethod('setResumeMode', {'mode': mode});
+
+  /// setBarcodeMode(String mode) - How printBarcode() talks to the connected printer, remembered per printer
+  /// mode: 'native' (default, GS k) or 'raster' (zxing image)
+  Future<dynamic> setBarcodeMode(String mode) => _channel.invokeMethod('setBarcodeMode', {'mode': mode});
+
+  /// printBarcode(String data, {String type, int height, int width, int hriPosition, int align})
+  /// type: 'CODE128', 'EAN13', 'CODE39' or 'ITF'
+  /// height: bar height in dots, width: module width 2-6, hriPosition: 0 none, 1 above, 2 below, 3 both
+  Future<dynamic> printBarcode(String data,
+          {String type = 'CODE128', int height = 80, int width = 2, int hriPosition = 2, int align = 1}) =>
+      _channel.invokeMethod('printBarcode', {
+        'data': data,
+        'type': type,
+        'height': height,
+        'width': width,
+        'hriPosition': hriPosition,
+        'align': align
+      });
 
   ///printQRcode(String textToQR, int width, int height, int align)
   Future<dynamic> printQRcode(String textToQR, int width, int height, int align) =>